@@ -0,0 +1,10 @@
+package com.codetest.cache;
+
+/**
+ * Tells the other nodes an entry changed, so they drop their copy and load it again on the next read.
+ *
+ * @param origin the node that made the change, which skips its own messages
+ * @param key the entry to drop, or null to drop the whole cache
+ */
+public record CacheInvalidation(String origin, String cache, Object key) {
+}
@@ -0,0 +1,157 @@
+package com.codetest.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Local cache that tells the other nodes about every change made through it, so their copies are dropped.
+ * A put or evict is a change (the @CachePut and @CacheEvict points of Library), while putIfAbsent and a
+ * get with a loader only fill this node's cache from the database and stay local.
+ * Invalidations go out once the surrounding transaction commits, as other nodes would otherwise reload the old row.
+ * A received invalidation leaves a tombstone, so that a load this node started before it cannot put the old row back.
+ */
+public class CoherentCache implements Cache {
+
+    private final Cache delegate;
+
+    private final InvalidationTransport transport;
+
+    private static final Duration TOMBSTONE_TTL = Duration.ofSeconds(10);
+
+    private final String node;
+
+    // when each key was last changed by another node, kept far longer than a load from the database takes
+    private final ConcurrentMap<Object, Long> tombstones = Caffeine.newBuilder()
+            .expireAfterWrite(TOMBSTONE_TTL)
+            .<Object, Long>build()
+            .asMap();
+
+    private volatile long clearedAt = System.nanoTime() - TOMBSTONE_TTL.toNanos();
+
+    public CoherentCache(Cache delegate, InvalidationTransport transport, String node) {
+        this.delegate = delegate;
+        this.transport = transport;
+        this.node = node;
+        transport.subscribe(this::receive);
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this.delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return this.delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return this.delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        final long loading = System.nanoTime();
+        final T value = this.delegate.get(key, valueLoader);
+        if(invalidatedSince(key, loading)) {
+            // another node changed the key while this one was loading it, so what was loaded may be the old row
+            this.delegate.evict(key);
+        }
+        return value;
+    }
+
+    /**
+     * The value was loaded at some point before the call, so it is only kept if the key has not been changed
+     * by another node for longer than a load takes.
+     */
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if(invalidatedSince(key, System.nanoTime() - TOMBSTONE_TTL.toNanos())) {
+            return this.delegate.get(key);
+        }
+        return this.delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        this.delegate.put(key, value);
+        publish(key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        this.delegate.evict(key);
+        publish(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        final boolean evicted = this.delegate.evictIfPresent(key);
+        publish(key);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        this.delegate.clear();
+        publish(null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        final boolean invalidated = this.delegate.invalidate();
+        publish(null);
+        return invalidated;
+    }
+
+    private void publish(Object key) {
+        final CacheInvalidation invalidation = new CacheInvalidation(this.node, getName(), key);
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.transport.publish(invalidation);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                CoherentCache.this.transport.publish(invalidation);
+            }
+        });
+    }
+
+    private void receive(CacheInvalidation invalidation) {
+        if(this.node.equals(invalidation.origin()) || !getName().equals(invalidation.cache())) {
+            return;
+        }
+
+        // the tombstone goes first, so a load finishing in between still sees it
+        final long now = System.nanoTime();
+        if(invalidation.key() == null) {
+            this.clearedAt = now;
+            this.delegate.clear();
+        } else {
+            this.tombstones.put(invalidation.key(), now);
+            this.delegate.evict(invalidation.key());
+        }
+    }
+
+    private boolean invalidatedSince(Object key, long since) {
+        if(this.clearedAt - since >= 0) {
+            return true;
+        }
+        final Long changed = this.tombstones.get(key);
+        return changed != null && changed - since >= 0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.codetest.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Finds the most looked up keys with a count-min sketch, keeping the top ones with their estimated count.
+ * Only one lookup in sampleRate is counted, so even the hottest key costs a few atomic increments now and then.
+ * Every decay halves the counts, so that what was hot a while ago makes way for what is hot now.
+ */
+public class HotKeys {
+
+    private static final int DEPTH = 4;
+
+    private static final int[] SEEDS = {0x97cb3127, 0xb5ad4ece, 0x7feb352d, 0x846ca68b};
+
+    private final AtomicLongArray counts;
+
+    private final int mask;
+
+    private final int top;
+
+    private final int sampleRate;
+
+    private final ConcurrentMap<Object, Long> hottest = new ConcurrentHashMap<>();
+
+    private volatile Consumer<Object> listener = key -> { };
+
+    // the smallest count among the hottest keys once there are top of them, a key has to beat it to get in
+    private volatile long threshold;
+
+    /**
+     * @param width counters per row of the sketch, rounded up to a power of two
+     */
+    public HotKeys(int top, int width, int sampleRate) {
+        final int rowWidth = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.counts = new AtomicLongArray(DEPTH * rowWidth);
+        this.mask = rowWidth - 1;
+        this.top = top;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Called with the key whenever it becomes one of the hottest or stops being one, check which with isHot.
+     */
+    public void onChange(Consumer<Object> listener) {
+        this.listener = listener;
+    }
+
+    public void record(Object key) {
+        if(this.sampleRate > 1 && ThreadLocalRandom.current().nextInt(this.sampleRate) != 0) {
+            return;
+        }
+
+        final int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for(int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, this.counts.incrementAndGet(index(hash, row)));
+        }
+
+        final long count = estimate;
+        if(this.hottest.computeIfPresent(key, (k, previous) -> Math.max(previous, count)) == null
+                && (this.hottest.size() < this.top || count > this.threshold)) {
+            admit(key, count);
+        }
+    }
+
+    public boolean isHot(Object key) {
+        return this.hottest.containsKey(key);
+    }
+
+    /**
+     * @return the hottest keys with their estimated number of lookups, hottest first
+     */
+    public Map<Object, Long> hottest() {
+        final List<Map.Entry<Object, Long>> entries = new ArrayList<>(this.hottest.entrySet());
+        entries.sort(Map.Entry.<Object, Long>comparingByValue().reversed());
+
+        final Map<Object, Long> hottest = new LinkedHashMap<>();
+        for(Map.Entry<Object, Long> entry : entries) {
+            hottest.put(entry.getKey(), entry.getValue() * this.sampleRate);
+        }
+        return hottest;
+    }
+
+    /**
+     * Halves every count, the keys whose count drops to nothing stop being hot.
+     * Lookups counted while this runs may be halved or not, the sketch is an estimate either way.
+     */
+    public synchronized void decay() {
+        for(int i = 0; i < this.counts.length(); i++) {
+            this.counts.set(i, this.counts.get(i) >> 1);
+        }
+
+        final List<Object> cooled = new ArrayList<>();
+        for(Object key : this.hottest.keySet()) {
+            if(this.hottest.computeIfPresent(key, (k, count) -> count > 1 ? count >> 1 : null) == null) {
+                cooled.add(key);
+            }
+        }
+        updateThreshold();
+        cooled.forEach(this.listener);
+    }
+
+    private synchronized void admit(Object key, long count) {
+        if(this.hottest.containsKey(key)) {
+            return;
+        }
+
+        Object evicted = null;
+        if(this.hottest.size() >= this.top) {
+            final Map.Entry<Object, Long> coldest = coldest().orElseThrow();
+            if(coldest.getValue() >= count) {
+                this.threshold = coldest.getValue();
+                return;
+            }
+            this.hottest.remove(coldest.getKey());
+            evicted = coldest.getKey();
+        }
+
+        this.hottest.put(key, count);
+        updateThreshold();
+        if(evicted != null) {
+            this.listener.accept(evicted);
+        }
+        this.listener.accept(key);
+    }
+
+    private void updateThreshold() {
+        this.threshold = this.hottest.size() < this.top ? 0L : coldest().map(Map.Entry::getValue).orElse(0L);
+    }
+
+    private Optional<Map.Entry<Object, Long>> coldest() {
+        return this.hottest.entrySet().stream().min(Comparator.comparingLong(Map.Entry::getValue));
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (this.mask + 1) + (h & this.mask);
+    }
+}
@@ -0,0 +1,20 @@
+package com.codetest.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between the nodes sharing a database. The transport is picked with the
+ * cache.invalidation.transport property, and none is used when the service runs as a single node.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Sends the invalidation to every node, possibly including this one.
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * Registers a listener for invalidations from all nodes, called on whatever thread the transport delivers on.
+     */
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,41 @@
+package com.codetest.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations to every context started in this jvm, on the publishing thread.
+ * Stands in for a broker in tests and benchmarks that run several nodes in one process.
+ */
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "loopback")
+@Component
+public class LoopbackTransport implements InvalidationTransport {
+
+    private static final List<Consumer<CacheInvalidation>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<CacheInvalidation>> own = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        for(Consumer<CacheInvalidation> listener : LISTENERS) {
+            listener.accept(invalidation);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        this.own.add(listener);
+        LISTENERS.add(listener);
+    }
+
+    @PreDestroy
+    public void close() {
+        LISTENERS.removeAll(this.own);
+        this.own.clear();
+    }
+}
@@ -0,0 +1,150 @@
+package com.codetest.config;
+
+import com.codetest.cache.CoherentCache;
+import com.codetest.cache.HotKeys;
+import com.codetest.cache.InvalidationTransport;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+@Configuration
+public class CacheConfig {
+
+    public static final String BOOKS = "books";
+
+    public static final String AUTHENTICATIONS = "authentications";
+
+    @Value("${cache.books.maximum-size}")
+    private long booksMaximumSize;
+
+    @Value("${cache.books.expire-after-write}")
+    private Duration booksExpireAfterWrite;
+
+    @Value("${cache.hot-isbns.top}")
+    private int hotIsbnsTop;
+
+    @Value("${cache.hot-isbns.sketch-width}")
+    private int hotIsbnsSketchWidth;
+
+    @Value("${cache.hot-isbns.sample-rate}")
+    private int hotIsbnsSampleRate;
+
+    @Value("${cache.authentications.maximum-size}")
+    private long authenticationsMaximumSize;
+
+    @Value("${cache.authentications.expire-after-write}")
+    private Duration authenticationsExpireAfterWrite;
+
+    /**
+     * Caffeine evicts by window tiny lfu once the size bound is hit, and records stats for the cache endpoint.
+     * With an invalidation transport the books cache tells the other nodes of every change, see CoherentCache.
+     * Hot isbns weigh nothing in the books cache, so size eviction never drops them, only expiry and changes do.
+     */
+    @Bean
+    public CacheManager cacheManager(ObjectProvider<InvalidationTransport> transport, HotKeys hotIsbns) {
+        final InvalidationTransport invalidations = transport.getIfAvailable();
+        // every start is a new node, so a restarted node never mistakes an earlier run's messages for its own
+        final String node = UUID.randomUUID().toString();
+        final CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                final Cache adapted = super.adaptCaffeineCache(name, cache);
+                return invalidations != null && BOOKS.equals(name) ? new CoherentCache(adapted, invalidations, node) : adapted;
+            }
+        };
+        // only the caches registered here exist, nothing unbounded gets created on demand
+        cacheManager.setCacheNames(Collections.emptyList());
+        final com.github.benmanes.caffeine.cache.Cache<Object, Object> books = Caffeine.newBuilder()
+                .maximumWeight(this.booksMaximumSize)
+                .weigher((key, book) -> hotIsbns.isHot(key) ? 0 : 1)
+                .expireAfter(new ExpireAfterWrite(this.booksExpireAfterWrite))
+                .recordStats()
+                .build();
+        // weights are only taken on a write, so a book is written again in place when it turns hot or cold,
+        // which keeps the time it has left, a book does not get to live longer for turning hot
+        hotIsbns.onChange(isbn -> ExpireAfterWrite.reweigh(() -> books.asMap().computeIfPresent(isbn, (key, book) -> book)));
+        cacheManager.registerCustomCache(BOOKS, books);
+        cacheManager.registerCustomCache(AUTHENTICATIONS, Caffeine.newBuilder()
+                .maximumSize(this.authenticationsMaximumSize)
+                .expireAfterWrite(this.authenticationsExpireAfterWrite)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    /**
+     * Actuator only binds the stats of caches it knows to be caffeine ones, so the books cache wrapped in a
+     * CoherentCache has its caffeine cache bound here, keeping cache.gets and the rest under the same names.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheMeterBinderProvider<CoherentCache> coherentCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+    }
+
+    /**
+     * Expires an entry the given time after it was last written like expireAfterWrite, except for writes made to
+     * re-weigh it, which policy().eviction() has no call for.
+     */
+    static class ExpireAfterWrite implements Expiry<Object, Object> {
+
+        private static final ThreadLocal<Boolean> REWEIGHING = new ThreadLocal<>();
+
+        private final long nanos;
+
+        ExpireAfterWrite(Duration duration) {
+            this.nanos = duration.toNanos();
+        }
+
+        static void reweigh(Runnable write) {
+            REWEIGHING.set(Boolean.TRUE);
+            try {
+                write.run();
+            } finally {
+                REWEIGHING.remove();
+            }
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return this.nanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return REWEIGHING.get() != null ? currentDuration : this.nanos;
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Counts lookups by isbn to find the ones to pin in the books cache, see /caches/books/hot.
+     */
+    @Bean
+    public HotKeys hotIsbns() {
+        return new HotKeys(this.hotIsbnsTop, this.hotIsbnsSketchWidth, this.hotIsbnsSampleRate);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.hot-isbns.decay-interval-ms}")
+    public void decayHotIsbns() {
+        hotIsbns().decay();
+    }
+}
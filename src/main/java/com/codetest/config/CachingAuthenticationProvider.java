@@ -0,0 +1,79 @@
+package com.codetest.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Remembers successful username and password checks so that repeat basic auth requests skip the password hashing.
+ * Entries are keyed by an hmac-sha256 of the username and password under a random key made at startup, so neither
+ * a password nor a digest that could be checked against guesses outside this process is kept. Entries live as long as
+ * the authentications cache allows, which is also how long a changed or disabled user can still get in.
+ * Failed checks are never cached.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final AuthenticationProvider delegate;
+
+    private final Cache cache;
+
+    private final SecretKeySpec secret;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, Cache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.secret = new SecretKeySpec(secret, HMAC);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if(!(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null) {
+            return this.delegate.authenticate(authentication);
+        }
+
+        final String key = key(authentication.getName(), authentication.getCredentials().toString());
+        final Authentication cached = this.cache.get(key, Authentication.class);
+        if(cached != null) {
+            return cached;
+        }
+
+        final Authentication authenticated = this.delegate.authenticate(authentication);
+        if(authenticated != null) {
+            this.cache.put(key, authenticated);
+        }
+        return authenticated;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return this.delegate.supports(authentication);
+    }
+
+    private String key(String username, String password) {
+        try {
+            // a mac is not thread safe, and a fresh one costs far less than the hashing it saves
+            final Mac mac = Mac.getInstance(HMAC);
+            mac.init(this.secret);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(password.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal());
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is required of every java platform", e);
+        }
+    }
+}
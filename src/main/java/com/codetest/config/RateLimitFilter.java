@@ -0,0 +1,101 @@
+package com.codetest.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits every authenticated user to a rate of requests, with separate buckets for reading (GET, HEAD, OPTIONS)
+ * and for everything else so a burst of borrows does not starve lookups. The rate and burst come from
+ * the strongest role of the user. Requests over the limit get a too many requests (429) with Retry-After.
+ * A user's buckets are dropped once they have been idle long enough to be full again, which loses nothing,
+ * and past the given number of users the least recent ones are dropped, getting a full burst back.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String WRITE_ROLE = "ROLE_write";
+
+    private final Limit readLimit;
+
+    private final Limit writeLimit;
+
+    private final Cache<String, Buckets> buckets;
+
+    public RateLimitFilter(Limit readLimit, Limit writeLimit, long maximumUsers) {
+        this.readLimit = readLimit;
+        this.writeLimit = writeLimit;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(max(readLimit.refill(), writeLimit.refill()))
+                .maximumSize(maximumUsers)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if(authentication == null || !authentication.isAuthenticated()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final Buckets buckets = this.buckets.get(authentication.getName(), name -> newBuckets(authentication));
+        final TokenBucket bucket = isRead(request.getMethod()) ? buckets.read() : buckets.write();
+        final long wait = bucket.tryTake(System.nanoTime());
+        if(wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L))));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private Buckets newBuckets(Authentication authentication) {
+        boolean writer = false;
+        for(GrantedAuthority authority : authentication.getAuthorities()) {
+            writer |= WRITE_ROLE.equals(authority.getAuthority());
+        }
+        final Limit limit = writer ? this.writeLimit : this.readLimit;
+        return new Buckets(limit.bucket(), limit.bucket());
+    }
+
+    private static Duration max(Duration one, Duration other) {
+        return one.compareTo(other) >= 0 ? one : other;
+    }
+
+    private static boolean isRead(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    /**
+     * Requests per second a user can keep up, and how many more they can send at once after being idle.
+     */
+    public record Limit(double requestsPerSecond, int burst) {
+
+        TokenBucket bucket() {
+            return new TokenBucket(this.requestsPerSecond, this.burst);
+        }
+
+        /**
+         * @return how long an empty bucket takes to fill up
+         */
+        Duration refill() {
+            return Duration.ofNanos((long) Math.ceil(this.burst * 1_000_000_000d / this.requestsPerSecond));
+        }
+    }
+
+    private record Buckets(TokenBucket read, TokenBucket write) {
+    }
+}
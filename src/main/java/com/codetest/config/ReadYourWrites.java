@@ -0,0 +1,59 @@
+package com.codetest.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.security.Principal;
+import java.time.Duration;
+
+/**
+ * Reads a member makes shortly after one of their own writes, such as a borrow, go to the primary,
+ * so they never see the replica from before their change. Other members keep reading from the replica.
+ * Anonymous calls are not tracked, there is no telling one anonymous caller from another.
+ */
+public class ReadYourWrites implements AsyncHandlerInterceptor {
+
+    private final Cache<String, Boolean> writers;
+
+    public ReadYourWrites(Duration window, long maximumMembers) {
+        this.writers = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumMembers)
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        final Principal principal = request.getUserPrincipal();
+        if(isRead(request) && principal != null && this.writers.getIfPresent(principal.getName()) != null) {
+            ReplicaRoutingDataSource.pinPrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the request goes on in another thread, this one goes back to the pool
+        ReplicaRoutingDataSource.unpinPrimary();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.unpinPrimary();
+        final Principal principal = request.getUserPrincipal();
+        if(!isRead(request) && principal != null && ex == null && response.getStatus() < 400) {
+            wrote(principal.getName());
+        }
+    }
+
+    public void wrote(String member) {
+        this.writers.put(member, Boolean.TRUE);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+}
@@ -0,0 +1,74 @@
+package com.codetest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * With datasource.replica.enabled=true the application gets two connection pools, the usual one on the primary
+ * and one on a read replica, so that catalogue browsing never takes a connection a borrow or return is waiting for.
+ * Read only transactions, which the Library query methods are, go to the replica, see ReplicaRoutingDataSource.
+ * The replica is kept up to date by the database's own replication, the application never writes to it.
+ */
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+@Configuration
+public class ReplicaConfig implements WebMvcConfigurer {
+
+    @Value("${datasource.replica.read-your-writes.window}")
+    private Duration readYourWritesWindow;
+
+    @Value("${datasource.replica.read-your-writes.maximum-members}")
+    private long readYourWritesMembers;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username}") String username,
+                                              @Value("${datasource.replica.password}") String password) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, @Qualifier("replicaDataSource") DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites() {
+        return new ReadYourWrites(this.readYourWritesWindow, this.readYourWritesMembers);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if(!this.readYourWritesWindow.isZero()) {
+            registry.addInterceptor(readYourWrites());
+        }
+    }
+}
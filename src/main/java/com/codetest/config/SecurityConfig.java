@@ -1,18 +1,26 @@
 package com.codetest.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @ConditionalOnProperty(name = "auth.disabled", matchIfMissing = true, havingValue = "false")
 @EnableWebSecurity
@@ -25,23 +33,65 @@ public class SecurityConfig {
     @Value("${admin.password}")
     private String adminPassword;
 
+    @Value("${rate-limit.read.requests-per-second}")
+    private double readRequestsPerSecond;
+
+    @Value("${rate-limit.read.burst}")
+    private int readBurst;
+
+    @Value("${rate-limit.write.requests-per-second}")
+    private double writeRequestsPerSecond;
+
+    @Value("${rate-limit.write.burst}")
+    private int writeBurst;
+
+    @Value("${rate-limit.maximum-users}")
+    private long rateLimitedUsers;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Hashes with bcrypt, and still reads passwords stored with any other {id} prefix.
+     */
     @Bean
-    public UserDetailsService userDetailsService() {
+    public PasswordEncoder passwordEncoder() {
+        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    }
+
+    @Bean
+    public UserDetailsService userDetailsService(PasswordEncoder passwordEncoder) {
         final InMemoryUserDetailsManager userDetailsService = new InMemoryUserDetailsManager();
-        userDetailsService.createUser(User.withUsername("user").password("{noop}" + userPassword).roles("read").build());
-        userDetailsService.createUser(User.withUsername("admin").password("{noop}" + adminPassword).roles("read", "write").build());
+        userDetailsService.createUser(User.withUsername("user").password(passwordEncoder.encode(userPassword)).roles("read").build());
+        userDetailsService.createUser(User.withUsername("admin").password(passwordEncoder.encode(adminPassword)).roles("read", "write").build());
         return userDetailsService;
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public AuthenticationManager authenticationManager(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+        final DaoAuthenticationProvider passwordCheck = new DaoAuthenticationProvider(passwordEncoder);
+        passwordCheck.setUserDetailsService(userDetailsService);
+        return new ProviderManager(new CachingAuthenticationProvider(passwordCheck, this.cacheManager.getCache(CacheConfig.AUTHENTICATIONS)));
+    }
+
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthenticationManager authenticationManager) throws Exception {
         http.authorizeHttpRequests(auth ->
                     auth.requestMatchers("/h2-console/*").permitAll()
+                    // liveness and readiness probes come from the orchestrator, which has no credentials
+                    .requestMatchers("/actuator/health/**").permitAll()
+                    .requestMatchers("/loans/me").hasAnyRole("read", "write")
+                    .requestMatchers("/loans/**").hasRole("write")
+                    .requestMatchers("/books/hold/**").hasAnyRole("read", "write")
+                    .requestMatchers("/caches/books/hot").hasRole("write")
                     .requestMatchers(HttpMethod.POST).hasRole("write")
                     .requestMatchers(HttpMethod.DELETE).hasRole("write")
                     .requestMatchers("/**").hasAnyRole("read", "write")
                 )
+                .authenticationManager(authenticationManager)
                 .httpBasic(Customizer.withDefaults())
+                .addFilterAfter(new RateLimitFilter(new RateLimitFilter.Limit(readRequestsPerSecond, readBurst),
+                        new RateLimitFilter.Limit(writeRequestsPerSecond, writeBurst), rateLimitedUsers), BasicAuthenticationFilter.class)
                 .csrf(AbstractHttpConfigurer::disable);
         return http.build();
     }
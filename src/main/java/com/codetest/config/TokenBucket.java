@@ -0,0 +1,43 @@
+package com.codetest.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket refilling at a fixed rate up to its capacity.
+ * The whole state is the time at which the bucket would be full again, so taking a token is a single
+ * compare and set on one long, with no refill thread and no lock.
+ */
+class TokenBucket {
+
+    private final long nanosPerToken;
+
+    private final long capacityNanos;
+
+    private final AtomicLong fullAt;
+
+    TokenBucket(double tokensPerSecond, int capacity) {
+        if(tokensPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("A token bucket needs a positive rate and capacity");
+        }
+        this.nanosPerToken = Math.max(1L, (long) (1_000_000_000L / tokensPerSecond));
+        this.capacityNanos = this.nanosPerToken * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime() - this.capacityNanos);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanos until one is available
+     */
+    long tryTake(long now) {
+        while(true) {
+            final long current = this.fullAt.get();
+            final long next = Math.max(current, now) + this.nanosPerToken;
+            final long over = next - now - this.capacityNanos;
+            if(over > 0) {
+                return over;
+            }
+            if(this.fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
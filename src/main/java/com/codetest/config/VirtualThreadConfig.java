@@ -0,0 +1,37 @@
+package com.codetest.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * With spring.threads.virtual.enabled=true on java 21 or later, spring boot serves requests on virtual threads.
+ * Thousands of them can then block on jdbc at once, so the datasource gets a gate in front of it.
+ * On older javas the property is ignored and requests stay on the tomcat pool, which needs no gate.
+ */
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor gatedDataSourcePostProcessor(@Value("${datasource.gate.permits}") int permits,
+                                                                 @Value("${datasource.gate.timeout}") Duration timeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // with a replica each pool gets its own gate, the lazy proxy routing between them is left alone
+                if(bean instanceof DataSource dataSource && !(bean instanceof GatedDataSource) && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return new GatedDataSource(dataSource, permits, timeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
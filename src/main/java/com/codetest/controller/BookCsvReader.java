@@ -0,0 +1,150 @@
+package com.codetest.controller;
+
+import com.codetest.model.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads books one line at a time from csv with a header row naming the columns
+ * isbn, title, author, publicationYear and totalAvaliableCopies in any order.
+ * Values may be quoted to hold commas and line breaks. A value that is missing or not a number is read as null.
+ */
+class BookCsvReader implements Iterator<Book> {
+
+    private final BufferedReader reader;
+
+    private final int isbn;
+
+    private final int title;
+
+    private final int author;
+
+    private final int publicationYear;
+
+    private final int totalAvaliableCopies;
+
+    private String next;
+
+    BookCsvReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+
+        final String header = reader.readLine();
+        final List<String> columns = header == null ? List.of() : split(header);
+        this.isbn = columns.indexOf("isbn");
+        this.title = columns.indexOf("title");
+        this.author = columns.indexOf("author");
+        this.publicationYear = columns.indexOf("publicationYear");
+        this.totalAvaliableCopies = columns.indexOf("totalAvaliableCopies");
+        this.next = nextRecord();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.next != null;
+    }
+
+    @Override
+    public Book next() {
+        if(this.next == null) {
+            throw new NoSuchElementException();
+        }
+
+        final List<String> values = split(this.next);
+        this.next = nextRecord();
+
+        final Integer copies = number(values, this.totalAvaliableCopies);
+        return new Book(value(values, this.isbn), value(values, this.title), value(values, this.author),
+                number(values, this.publicationYear), copies == null ? 0 : copies);
+    }
+
+    /**
+     * @return the next row, taking in the lines that follow while a quoted value is still open
+     */
+    private String nextRecord() {
+        String line;
+        do {
+            line = nextLine();
+        } while(line != null && line.isBlank());
+        if(line == null) {
+            return null;
+        }
+
+        final StringBuilder record = new StringBuilder(line);
+        int quotes = quotes(line);
+        // an escaped quote counts twice, so an odd count means a value runs on to the next line
+        while(quotes % 2 != 0 && (line = nextLine()) != null) {
+            record.append('\n').append(line);
+            quotes += quotes(line);
+        }
+        return record.toString();
+    }
+
+    private String nextLine() {
+        try {
+            return this.reader.readLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static int quotes(String line) {
+        int quotes = 0;
+        for(int i = 0; i < line.length(); i++) {
+            if(line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private static String value(List<String> values, int index) {
+        if(index < 0 || index >= values.size() || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    private static Integer number(List<String> values, int index) {
+        final String value = value(values, index);
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    static List<String> split(String line) {
+        final List<String> values = new ArrayList<>();
+        final StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for(int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if(quoted) {
+                if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if(c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
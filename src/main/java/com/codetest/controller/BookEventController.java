@@ -0,0 +1,33 @@
+package com.codetest.controller;
+
+import com.codetest.model.BookEvent;
+import com.codetest.service.BookEvents;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/books")
+public class BookEventController {
+
+    @Autowired
+    private BookEvents bookEvents;
+
+    /**
+     * Streams book changes as server-sent events, each with its sequence number as the event id.
+     * A client coming back sends the last id it saw as Last-Event-ID, as browsers do on their own, or as after,
+     * and first gets what it missed. Without either the stream starts from now.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<BookEvent>> events(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                                   @RequestParam(value = "after", required = false) Long after) {
+        return this.bookEvents.stream(lastEventId != null ? lastEventId : after)
+                .map(event -> ServerSentEvent.builder(event).id(Long.toString(event.sequence())).build());
+    }
+}
@@ -0,0 +1,63 @@
+package com.codetest.controller;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Renders books to json bytes. With books.json.precomputed the bytes of every book looked up are kept,
+ * and sent again for as long as the same cached book instance is asked for with an unchanged copy count.
+ * The bytes are kept by the book instance, weakly, so they go once the books cache and everything else let go of it.
+ */
+@Component
+public class BookJson {
+
+    // bound to the type up front, so each write skips looking up the serializer
+    private final ObjectWriter writer;
+
+    // weak keys compare by identity, which is what tells a reloaded or recreated book from the cached one
+    private final Cache<Book, Rendered> rendered;
+
+    public BookJson(ObjectMapper objectMapper, @Value("${books.json.precomputed}") boolean precomputed) {
+        this.writer = objectMapper.writerFor(BookView.class);
+        this.rendered = precomputed ? Caffeine.newBuilder().weakKeys().build() : null;
+    }
+
+    public byte[] bytes(Book book) {
+        if(this.rendered == null) {
+            return render(BookView.of(book));
+        }
+
+        // the count is read once, bytes rendered from it are right for it even if a borrow lands meanwhile
+        final BookView view = BookView.of(book);
+        final Rendered previous = this.rendered.getIfPresent(book);
+        if(previous != null && Objects.equals(previous.copies(), view.avaliableCopies())) {
+            return previous.json();
+        }
+
+        final byte[] json = render(view);
+        // only the cached instance is mutated in place, a reloaded or recreated book is a new instance and renders anew
+        this.rendered.put(book, new Rendered(view.avaliableCopies(), json));
+        return json;
+    }
+
+    private byte[] render(BookView view) {
+        try {
+            return this.writer.writeValueAsBytes(view);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Rendered(Integer copies, byte[] json) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.codetest.controller;
+
+import com.codetest.cache.HotKeys;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/caches")
+public class CacheController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private HotKeys hotIsbns;
+
+    @GetMapping("/{name}/stats")
+    public ResponseEntity<Map<String, Object>> stats(@PathVariable("name") String name) {
+        final Cache cache = this.cacheManager.getCache(name);
+        // read through the native cache, as the books cache may be wrapped to keep nodes coherent
+        if(cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        final CacheStats stats = caffeine.stats();
+        final Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", caffeine.estimatedSize());
+        body.put("hitCount", stats.hitCount());
+        body.put("missCount", stats.missCount());
+        body.put("hitRate", stats.hitRate());
+        body.put("evictionCount", stats.evictionCount());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Lists the isbns pinned in the books cache for being looked up the most, hottest first,
+     * with an estimate of their lookups since counts were last halved.
+     */
+    @GetMapping("/books/hot")
+    public List<Map<String, Object>> hotBooks() {
+        final List<Map<String, Object>> hot = new ArrayList<>();
+        for(Map.Entry<Object, Long> entry : this.hotIsbns.hottest().entrySet()) {
+            final Map<String, Object> isbn = new LinkedHashMap<>();
+            isbn.put("isbn", entry.getKey());
+            isbn.put("lookups", entry.getValue());
+            hot.add(isbn);
+        }
+        return hot;
+    }
+}
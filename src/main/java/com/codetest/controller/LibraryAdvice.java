@@ -1,34 +1,58 @@
 package com.codetest.controller;
 
 import com.codetest.exception.BookNotFoundException;
+import com.codetest.exception.LibraryException;
+import com.codetest.exception.OutOfStockException;
+import com.codetest.exception.OverReturnException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
 
+/**
+ * Sends errors back as problem details (RFC 9457), with a status telling apart the expected outcomes of library calls.
+ */
 @ControllerAdvice
 public class LibraryAdvice {
 
     @ResponseBody
     @ExceptionHandler(BookNotFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public String bookNotFoundException(BookNotFoundException ex) {
-        return ex.getMessage();
+    public ProblemDetail bookNotFoundException(BookNotFoundException ex) {
+        return problem(HttpStatus.NOT_FOUND, "Not found", ex);
+    }
+
+    @ResponseBody
+    @ExceptionHandler(OutOfStockException.class)
+    public ProblemDetail outOfStockException(OutOfStockException ex) {
+        return problem(HttpStatus.CONFLICT, "Out of stock", ex);
+    }
+
+    @ResponseBody
+    @ExceptionHandler(OverReturnException.class)
+    public ProblemDetail overReturnException(OverReturnException ex) {
+        return problem(HttpStatus.UNPROCESSABLE_ENTITY, "Over return", ex);
     }
 
     @ResponseBody
     @ExceptionHandler(DataIntegrityViolationException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public String dataIntegrityViolationException(DataIntegrityViolationException ex) {
-        return ex.getMessage();
+    public ProblemDetail dataIntegrityViolationException(DataIntegrityViolationException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
     @ResponseBody
     @ExceptionHandler(RuntimeException.class)
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public String runtimeException(RuntimeException ex) {
-        return ex.getMessage();
+    public ProblemDetail runtimeException(RuntimeException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+    }
+
+    private static ProblemDetail problem(HttpStatus status, String title, LibraryException ex) {
+        final ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, ex.getMessage());
+        problem.setTitle(title);
+        if(!ex.getSubject().isEmpty()) {
+            problem.setProperty("subject", ex.getSubject());
+        }
+        return problem;
     }
 }
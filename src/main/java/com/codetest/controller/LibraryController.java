@@ -1,44 +1,286 @@
 package com.codetest.controller;
 
+import com.codetest.cache.HotKeys;
+import com.codetest.exception.BookNotFoundException;
 import com.codetest.model.Book;
+import com.codetest.model.BookView;
+import com.codetest.model.ImportResult;
+import com.codetest.service.BookImporter;
+import com.codetest.service.CatalogueLoader;
+import com.codetest.service.Hold;
 import com.codetest.service.Library;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/books")
 public class LibraryController {
 
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    public static final String TEXT_CSV = "text/csv";
+
+    /**
+     * Member recorded on loans made without a logged in user, when authentication is disabled.
+     */
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final int DEFAULT_SEARCH_RESULTS = 10;
+
     @Autowired
     private Library library;
 
+    @Autowired
+    private BookImporter bookImporter;
+
+    @Autowired
+    private CatalogueLoader catalogueLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookJson bookJson;
+
+    @Autowired
+    private HotKeys hotIsbns;
+
+    @Value("${books.page-size}")
+    private int pageSize;
+
+    @Value("${books.max-page-size}")
+    private int maxPageSize;
+
+    @Value("${holds.poll-timeout}")
+    private Duration holdPollTimeout;
+
+    @Value("${books.cache-control.max-age}")
+    private Duration maxAge;
+
+    @Value("${books.cache-control.shared-max-age}")
+    private Duration sharedMaxAge;
+
     @PostMapping
-    public ResponseEntity<Book> create(@RequestBody Book book) {
-        return new ResponseEntity<>(this.library.createBook(book), HttpStatus.CREATED);
+    public ResponseEntity<BookView> create(@RequestBody Book book) {
+        return new ResponseEntity<>(BookView.of(this.library.createBook(book)), HttpStatus.CREATED);
+    }
+
+    /**
+     * Imports a json array of books, read one element at a time so the whole body is never held in memory.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResult importBooks(InputStream body) throws IOException {
+        try(MappingIterator<Book> books = this.objectMapper.readerFor(Book.class).readValues(body)) {
+            return this.bookImporter.importBooks(books);
+        }
+    }
+
+    @PostMapping(value = "/import", consumes = TEXT_CSV)
+    public ImportResult importBooksFromCsv(Reader body) throws IOException {
+        return this.bookImporter.importBooks(new BookCsvReader(new BufferedReader(body)));
     }
 
+    /**
+     * Writes the whole catalogue to catalogue.snapshot.path, for the next start to be seeded from.
+     */
+    @PostMapping("/snapshot")
+    public Map<String, Integer> writeSnapshot() throws IOException {
+        return Map.of("written", this.catalogueLoader.writeSnapshot());
+    }
+
+    /**
+     * Writes the book straight from its rendered json bytes, see books.json.precomputed.
+     * The ETag changes with every borrow and return, so a client polling with If-None-Match gets a not modified (304)
+     * answered from the cached book alone. Shared caches may keep the book for books.cache-control.shared-max-age,
+     * but as the api sits behind basic authentication they keep it apart for every Authorization header, so a cache
+     * never answers a caller whose credentials were not checked. Sharing one copy across callers is only safe behind
+     * an edge that authenticates on its own, which can then drop the Vary.
+     * Lookups of books that exist are counted to find the hot isbns that stay pinned in the books cache,
+     * so a flood of unknown isbns never pushes real books out of the top.
+     */
     @GetMapping("/isbn/{isbn}")
-    public Book findBookByISBN(@PathVariable("isbn") String isbn) {
-        return this.library.findBookByISBN(isbn);
+    public ResponseEntity<byte[]> findBookByISBN(@PathVariable("isbn") String isbn, WebRequest request) {
+        final Book book = this.library.findBookByISBN(isbn);
+        this.hotIsbns.record(isbn);
+        final String etag = etag(book);
+        final CacheControl cacheControl = CacheControl.maxAge(this.maxAge).sMaxAge(this.sharedMaxAge).cachePublic();
+
+        if(request.checkNotModified(etag)) {
+            // the status and ETag are already set on the response
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).varyBy(HttpHeaders.AUTHORIZATION).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(this.bookJson.bytes(book));
     }
 
+    /**
+     * The copy count goes in next to the version, as in memory and journal modes a reloaded row can carry an older
+     * version than the cached instance had. The id tells apart a book removed and created again under the same isbn.
+     */
+    static String etag(Book book) {
+        return "\"" + book.getId() + '.' + book.getVersion() + '.' + book.getAvaliableCopies() + '"';
+    }
+
+    /**
+     * Looks up several books in one call, as in /books/isbn?isbn=BOOK001,BOOK002. Unknown isbns are left out.
+     */
+    @GetMapping("/isbn")
+    public ResponseEntity<List<BookView>> findBooksByISBN(@RequestParam("isbn") List<String> isbns) {
+        if(isbns.size() > this.maxPageSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(views(this.library.findBooksByISBN(isbns)));
+    }
+
+    /**
+     * Searches titles and authors by word prefixes, as in /books/search?q=lord rin&k=10.
+     */
+    @GetMapping("/search")
+    public List<BookView> searchBooks(@RequestParam("q") String query, @RequestParam(name = "k", required = false) Integer k) {
+        final int limit = k == null ? DEFAULT_SEARCH_RESULTS : Math.max(1, Math.min(k, this.maxPageSize));
+        return views(this.library.searchBooks(query, limit));
+    }
+
+    /**
+     * Returns one page of the author's books. When the page is full the id to pass as after
+     * for the next page is sent back in the X-Next-Cursor header.
+     */
     @GetMapping("/author/{author}")
-    public List<Book> findBooksByAuthor(@PathVariable("author") String author) {
-        return this.library.findBooksByAuthor(author);
+    public ResponseEntity<List<BookView>> findBooksByAuthor(@PathVariable("author") String author,
+                                                            @RequestParam(name = "after", required = false) Long after,
+                                                            @RequestParam(name = "size", required = false) Integer size) {
+        final int limit = size == null ? this.pageSize : Math.max(1, Math.min(size, this.maxPageSize));
+        final List<Book> books = this.library.findBooksByAuthor(author, after, limit);
+
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(books.size() == limit) {
+            response.header(NEXT_CURSOR, String.valueOf(books.get(books.size() - 1).getId()));
+        }
+        return response.body(views(books));
+    }
+
+    /**
+     * Streams all of the author's books as one json document per line, reading them a page at a time.
+     */
+    @GetMapping(value = "/author/{author}", produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamBooksByAuthor(@PathVariable("author") String author) {
+        // the first page is read up front so an unknown author is still a plain not found
+        final List<Book> firstPage = this.library.findBooksByAuthor(author, null, this.maxPageSize);
+
+        final StreamingResponseBody body = out -> {
+            List<Book> page = firstPage;
+            while(true) {
+                for(Book book : page) {
+                    out.write(this.objectMapper.writeValueAsBytes(BookView.of(book)));
+                    out.write('\n');
+                }
+                out.flush();
+
+                if(page.size() < this.maxPageSize) {
+                    return;
+                }
+                page = this.library.findBooksByAuthor(author, page.get(page.size() - 1).getId(), this.maxPageSize);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON)).body(body);
     }
 
     @PutMapping("/borrow/isbn/{isbn}")
-    public Book borrowBook(@PathVariable("isbn") String isbn) {
-        return this.library.borrowBook(isbn);
+    public BookView borrowBook(@PathVariable("isbn") String isbn, Principal principal) {
+        return BookView.of(this.library.borrowBook(isbn, member(principal)));
     }
 
     @PutMapping("/return/isbn/{isbn}")
-    public Book returnBook(@PathVariable("isbn") String isbn) {
-        return this.library.returnBook(isbn);
+    public BookView returnBook(@PathVariable("isbn") String isbn, Principal principal) {
+        return BookView.of(this.library.returnBook(isbn, member(principal)));
+    }
+
+    /**
+     * Places a hold on a book, or keeps the member's place if they already have one, and waits for a copy.
+     * The book with its loan opened comes back as soon as the hold is granted. If that takes longer than
+     * holds.poll-timeout an accepted (202) is sent back, the hold stays in line and GET waits on it again.
+     * A hold granted between two polls is kept for the next GET, which sends the book back straight away.
+     */
+    @PutMapping("/hold/isbn/{isbn}")
+    public DeferredResult<ResponseEntity<BookView>> placeHold(@PathVariable("isbn") String isbn, Principal principal) {
+        return waitFor(this.library.placeHold(isbn, member(principal)));
+    }
+
+    @GetMapping("/hold/isbn/{isbn}")
+    public DeferredResult<ResponseEntity<BookView>> waitForHold(@PathVariable("isbn") String isbn, Principal principal) {
+        return this.library.findHold(isbn, member(principal))
+                .map(this::waitFor)
+                .orElseThrow(() -> new BookNotFoundException("No hold is placed for isbn : ", isbn));
+    }
+
+    @DeleteMapping("/hold/isbn/{isbn}")
+    public ResponseEntity<Void> cancelHold(@PathVariable("isbn") String isbn, Principal principal) {
+        return this.library.cancelHold(isbn, member(principal)) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    private DeferredResult<ResponseEntity<BookView>> waitFor(Hold hold) {
+        final DeferredResult<ResponseEntity<BookView>> result = new DeferredResult<>(this.holdPollTimeout.toMillis(), ResponseEntity.accepted().build());
+        hold.granted().whenComplete((book, failure) -> {
+            if(failure == null) {
+                // a poll that timed out has already answered, the hold then waits for the next one
+                if(result.setResult(ResponseEntity.ok(BookView.of(book)))) {
+                    this.library.collectHold(hold);
+                }
+            } else {
+                result.setErrorResult(failure);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Borrows a json array of isbns together, all of them or none.
+     */
+    @PutMapping("/borrow")
+    public ResponseEntity<List<BookView>> borrowBooks(@RequestBody List<String> isbns, Principal principal) {
+        if(isbns.size() > this.maxPageSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(views(this.library.borrowBooks(isbns, member(principal))));
+    }
+
+    /**
+     * Returns a json array of isbns together, all of them or none.
+     */
+    @PutMapping("/return")
+    public ResponseEntity<List<BookView>> returnBooks(@RequestBody List<String> isbns, Principal principal) {
+        if(isbns.size() > this.maxPageSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(views(this.library.returnBooks(isbns, member(principal))));
     }
 
     @DeleteMapping("/isbn/{isbn}")
@@ -46,4 +288,16 @@ public class LibraryController {
        this.library.removeBook(isbn);
     }
 
+    private static List<BookView> views(List<Book> books) {
+        final List<BookView> views = new ArrayList<>(books.size());
+        for(Book book : books) {
+            views.add(BookView.of(book));
+        }
+        return views;
+    }
+
+    static String member(Principal principal) {
+        return principal == null ? ANONYMOUS : principal.getName();
+    }
+
 }
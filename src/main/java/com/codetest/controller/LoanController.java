@@ -0,0 +1,76 @@
+package com.codetest.controller;
+
+import com.codetest.model.Loan;
+import com.codetest.service.Library;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/loans")
+public class LoanController {
+
+    @Autowired
+    private Library library;
+
+    @Value("${books.page-size}")
+    private int pageSize;
+
+    @Value("${books.max-page-size}")
+    private int maxPageSize;
+
+    /**
+     * Books the logged in member has out.
+     */
+    @GetMapping("/me")
+    public List<Loan> findMyOpenLoans(Principal principal) {
+        return this.library.findOpenLoans(LibraryController.member(principal), this.maxPageSize);
+    }
+
+    @GetMapping("/member/{member}")
+    public List<Loan> findOpenLoans(@PathVariable("member") String member) {
+        return this.library.findOpenLoans(member, this.maxPageSize);
+    }
+
+    /**
+     * Returns one page of every loan of the member. When the page is full the id to pass as after
+     * for the next page is sent back in the X-Next-Cursor header.
+     */
+    @GetMapping("/member/{member}/history")
+    public ResponseEntity<List<Loan>> findLoans(@PathVariable("member") String member,
+                                                @RequestParam(name = "after", required = false) Long after,
+                                                @RequestParam(name = "size", required = false) Integer size) {
+        final int limit = limit(size);
+        final List<Loan> loans = this.library.findLoans(member, after, limit);
+
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(loans.size() == limit) {
+            response.header(LibraryController.NEXT_CURSOR, String.valueOf(loans.get(loans.size() - 1).getId()));
+        }
+        return response.body(loans);
+    }
+
+    /**
+     * Members who have the book out.
+     */
+    @GetMapping("/isbn/{isbn}")
+    public List<Loan> findOpenLoansOfBook(@PathVariable("isbn") String isbn) {
+        return this.library.findOpenLoansOfBook(isbn, this.maxPageSize);
+    }
+
+    /**
+     * The longest overdue open loans, at most size of them.
+     */
+    @GetMapping("/overdue")
+    public List<Loan> findOverdueLoans(@RequestParam(name = "size", required = false) Integer size) {
+        return this.library.findOverdueLoans(limit(size));
+    }
+
+    private int limit(Integer size) {
+        return size == null ? this.pageSize : Math.max(1, Math.min(size, this.maxPageSize));
+    }
+}
@@ -0,0 +1,86 @@
+package com.codetest.controller;
+
+import com.codetest.cache.HotKeys;
+import com.codetest.model.Book;
+import com.codetest.service.Library;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.Principal;
+import java.util.concurrent.Callable;
+
+/**
+ * The book operations of LibraryController returning Mono and Flux. The request thread is handed back
+ * as soon as the handler returns, the blocking calls into Library run on a bounded elastic scheduler
+ * and the response is written when they complete.
+ */
+@RestController
+@RequestMapping("/reactive/books")
+public class ReactiveLibraryController {
+
+    private final Scheduler scheduler = Schedulers.boundedElastic();
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private HotKeys hotIsbns;
+
+    @Value("${books.page-size}")
+    private int pageSize;
+
+    @PostMapping
+    public Mono<ResponseEntity<Book>> create(@RequestBody Book book) {
+        return offload(() -> new ResponseEntity<>(this.library.createBook(book), HttpStatus.CREATED));
+    }
+
+    @GetMapping("/isbn/{isbn}")
+    public Mono<Book> findBookByISBN(@PathVariable("isbn") String isbn) {
+        this.hotIsbns.record(isbn);
+        return offload(() -> this.library.findBookByISBN(isbn));
+    }
+
+    /**
+     * Streams the author's books as one json document per line. Pages are read one after the other
+     * and only as fast as the client takes them.
+     */
+    @GetMapping(value = "/author/{author}", produces = LibraryController.APPLICATION_NDJSON)
+    public Flux<Book> findBooksByAuthor(@PathVariable("author") String author) {
+        return offload(() -> this.library.findBooksByAuthor(author, null, this.pageSize))
+                .expand(page -> page.size() < this.pageSize
+                        ? Mono.empty()
+                        : offload(() -> this.library.findBooksByAuthor(author, page.get(page.size() - 1).getId(), this.pageSize)))
+                .concatMapIterable(page -> page);
+    }
+
+    @PutMapping("/borrow/isbn/{isbn}")
+    public Mono<Book> borrowBook(@PathVariable("isbn") String isbn, Principal principal) {
+        final String member = LibraryController.member(principal);
+        return offload(() -> this.library.borrowBook(isbn, member));
+    }
+
+    @PutMapping("/return/isbn/{isbn}")
+    public Mono<Book> returnBook(@PathVariable("isbn") String isbn, Principal principal) {
+        final String member = LibraryController.member(principal);
+        return offload(() -> this.library.returnBook(isbn, member));
+    }
+
+    @DeleteMapping("/isbn/{isbn}")
+    public Mono<Void> removeBook(@PathVariable("isbn") String isbn) {
+        return offload(() -> {
+            this.library.removeBook(isbn);
+            return null;
+        }).then();
+    }
+
+    private <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(this.scheduler);
+    }
+}
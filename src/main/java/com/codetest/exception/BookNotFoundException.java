@@ -1,8 +1,12 @@
 package com.codetest.exception;
 
-public class BookNotFoundException extends RuntimeException {
+public class BookNotFoundException extends LibraryException {
 
     public BookNotFoundException(String message) {
         super(message);
     }
+
+    public BookNotFoundException(String reason, String subject) {
+        super(reason, subject);
+    }
 }
@@ -0,0 +1,34 @@
+package com.codetest.exception;
+
+/**
+ * Base of the expected outcomes a library call can end in, such as a book that does not exist or has no copies left.
+ * These are thrown often enough under load that they carry no stack trace and build their message only when asked.
+ */
+public abstract class LibraryException extends RuntimeException {
+
+    private final String reason;
+
+    private final String subject;
+
+    protected LibraryException(String message) {
+        this(message, "");
+    }
+
+    protected LibraryException(String reason, String subject) {
+        super(null, null, false, false);
+        this.reason = reason;
+        this.subject = subject;
+    }
+
+    @Override
+    public String getMessage() {
+        return this.reason + this.subject;
+    }
+
+    /**
+     * @return the isbn or author the outcome is about, or an empty string
+     */
+    public String getSubject() {
+        return this.subject;
+    }
+}
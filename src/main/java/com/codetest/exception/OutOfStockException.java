@@ -0,0 +1,11 @@
+package com.codetest.exception;
+
+/**
+ * Thrown when a borrow finds no copies left, or every free copy is set aside for members waiting on a hold.
+ */
+public class OutOfStockException extends LibraryException {
+
+    public OutOfStockException(String isbn) {
+        super("No copies exist to borrow for isbn : ", isbn);
+    }
+}
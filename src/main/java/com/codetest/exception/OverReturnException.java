@@ -0,0 +1,11 @@
+package com.codetest.exception;
+
+/**
+ * Thrown when a return finds every copy of the book already in.
+ */
+public class OverReturnException extends LibraryException {
+
+    public OverReturnException(String isbn) {
+        super("Return cannot be done as full limit of copies exist for isbn : ", isbn);
+    }
+}
@@ -0,0 +1,80 @@
+package com.codetest.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public Library operation as library.operation, tagged by operation and by the exception thrown, if any.
+ * Tags never hold an isbn or author so the number of series stays fixed.
+ * Cache hits and misses are published by actuator as cache.gets for the books cache.
+ */
+@Aspect
+@Component
+public class LibraryMetrics {
+
+    public static final String OPERATION = "library.operation";
+
+    public static final String REJECTION = "library.rejection";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Counter outOfStock;
+
+    private final Counter overReturn;
+
+    public LibraryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.outOfStock = Counter.builder(REJECTION)
+                .description("Borrows turned down because no copies were left")
+                .tag("reason", "out_of_stock")
+                .register(meterRegistry);
+        this.overReturn = Counter.builder(REJECTION)
+                .description("Returns turned down because all copies were already in")
+                .tag("reason", "over_return")
+                .register(meterRegistry);
+    }
+
+    public void outOfStock() {
+        this.outOfStock.increment();
+    }
+
+    public void overReturn() {
+        this.overReturn.increment();
+    }
+
+    @Around("execution(public * com.codetest.service.Library.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        final String operation = joinPoint.getSignature().getName();
+        final long started = System.nanoTime();
+        try {
+            final Object result = joinPoint.proceed();
+            timer(operation, "none").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable ex) {
+            timer(operation, ex.getClass().getSimpleName()).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    // looked up from a local map, building and registering a timer on every call would cost more than the timing
+    private Timer timer(String operation, String exception) {
+        return this.timers.computeIfAbsent(operation + '/' + exception, key -> Timer.builder(OPERATION)
+                .description("Time taken by Library operations")
+                .tag("operation", operation)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(this.meterRegistry));
+    }
+}
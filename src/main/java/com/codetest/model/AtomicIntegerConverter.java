@@ -0,0 +1,24 @@
+package com.codetest.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the copy counter as a plain integer column so it can be read and updated with sql,
+ * instead of the serialized varbinary hibernate would otherwise fall back to.
+ */
+@Converter
+public class AtomicIntegerConverter implements AttributeConverter<AtomicInteger, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(AtomicInteger attribute) {
+        return attribute == null ? null : attribute.get();
+    }
+
+    @Override
+    public AtomicInteger convertToEntityAttribute(Integer dbData) {
+        return dbData == null ? null : new AtomicInteger(dbData);
+    }
+}
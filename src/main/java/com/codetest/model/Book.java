@@ -4,12 +4,17 @@ import jakarta.persistence.*;
 
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 @Entity
+@Table(indexes = @Index(name = "idx_book_author_id", columnList = "author, id"))
 public class Book {
 
+    private static final AtomicLongFieldUpdater<Book> VERSION = AtomicLongFieldUpdater.newUpdater(Book.class, "version");
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -25,11 +30,19 @@ public class Book {
     private Integer publicationYear;
 
     @Column(nullable = true)
+    @Convert(converter = AtomicIntegerConverter.class)
     private volatile AtomicInteger avaliableCopies;
 
     @Column(nullable = true)
     private Integer totalAvaliableCopies = 0;
 
+    /**
+     * Bumped on every change to the copy count, by the copy updates in the database and on the cached instance alike.
+     * Kept by hand rather than with @Version, as the counts change through conditional updates that do their own checking.
+     */
+    @Column(nullable = false)
+    private volatile long version;
+
     @PrePersist
     public void prePersist() {
         if(this.totalAvaliableCopies == null) {
@@ -79,13 +92,25 @@ public class Book {
         return totalAvaliableCopies;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public Book reduceCopy() {
         this.avaliableCopies.decrementAndGet();
+        VERSION.incrementAndGet(this);
         return this;
     }
 
     public Book increaseCopy() {
         this.avaliableCopies.incrementAndGet();
+        VERSION.incrementAndGet(this);
+        return this;
+    }
+
+    public Book updateCopies(int copies) {
+        this.avaliableCopies.set(copies);
+        VERSION.incrementAndGet(this);
         return this;
     }
 
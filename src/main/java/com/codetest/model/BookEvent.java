@@ -0,0 +1,10 @@
+package com.codetest.model;
+
+/**
+ * A change to a book as streamed from /books/events, numbered in the order the changes committed.
+ * A RESET carries no book, it tells a resuming subscriber that events it missed are no longer kept.
+ */
+public record BookEvent(long sequence, Type type, BookView book) {
+
+    public enum Type { CREATED, BORROWED, RETURNED, REMOVED, RESET }
+}
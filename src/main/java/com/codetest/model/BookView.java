@@ -0,0 +1,17 @@
+package com.codetest.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Read model of a book as the api sends it back, a snapshot taken off the entity so serializing never touches
+ * hibernate or the live copy counter. Field names are the ones the api has always used.
+ */
+@JsonSerialize(using = BookViewSerializer.class)
+public record BookView(Long id, String isbn, String title, String author, Integer publicationYear,
+                       Integer avaliableCopies, Integer totalAvaliableCopies) {
+
+    public static BookView of(Book book) {
+        return new BookView(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor(), book.getPublicationYear(),
+                book.getAvaliableCopies() == null ? null : book.getAvaliableCopies().get(), book.getTotalAvaliableCopies());
+    }
+}
@@ -0,0 +1,63 @@
+package com.codetest.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a BookView field by field with field names encoded once up front, skipping the bean introspection
+ * and per property lookups of the default serializer.
+ */
+public class BookViewSerializer extends StdSerializer<BookView> {
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString ISBN = new SerializedString("isbn");
+
+    private static final SerializedString TITLE = new SerializedString("title");
+
+    private static final SerializedString AUTHOR = new SerializedString("author");
+
+    private static final SerializedString PUBLICATION_YEAR = new SerializedString("publicationYear");
+
+    private static final SerializedString AVALIABLE_COPIES = new SerializedString("avaliableCopies");
+
+    private static final SerializedString TOTAL_AVALIABLE_COPIES = new SerializedString("totalAvaliableCopies");
+
+    public BookViewSerializer() {
+        super(BookView.class);
+    }
+
+    @Override
+    public void serialize(BookView book, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        writeNumber(book.id(), generator);
+        generator.writeFieldName(ISBN);
+        generator.writeString(book.isbn());
+        generator.writeFieldName(TITLE);
+        generator.writeString(book.title());
+        generator.writeFieldName(AUTHOR);
+        generator.writeString(book.author());
+        generator.writeFieldName(PUBLICATION_YEAR);
+        writeNumber(book.publicationYear(), generator);
+        generator.writeFieldName(AVALIABLE_COPIES);
+        writeNumber(book.avaliableCopies(), generator);
+        generator.writeFieldName(TOTAL_AVALIABLE_COPIES);
+        writeNumber(book.totalAvaliableCopies(), generator);
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(Number number, JsonGenerator generator) throws IOException {
+        if(number == null) {
+            generator.writeNull();
+        } else if(number instanceof Long value) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNumber(number.intValue());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.codetest.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import, with every row that was left out and why.
+ */
+public record ImportResult(int imported, List<Rejection> rejected) {
+
+    public record Rejection(String isbn, String reason) {
+    }
+}
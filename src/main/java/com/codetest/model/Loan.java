@@ -0,0 +1,78 @@
+package com.codetest.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One copy of a book borrowed by a member, open until it is returned.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_loan_member_id", columnList = "member, id"),
+        @Index(name = "idx_loan_member_returned", columnList = "member, returnedAt"),
+        @Index(name = "idx_loan_isbn_returned", columnList = "isbn, returnedAt"),
+        @Index(name = "idx_loan_returned_due", columnList = "returnedAt, dueAt, id")
+})
+public class Loan {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String member;
+
+    @Column(nullable = false)
+    private String isbn;
+
+    @Column(nullable = false)
+    private Instant borrowedAt;
+
+    @Column(nullable = false)
+    private Instant dueAt;
+
+    @Column(nullable = true)
+    private Instant returnedAt;
+
+    public Loan() {
+        //hibernate default
+    }
+
+    public Loan(String member, String isbn, Instant borrowedAt, Instant dueAt) {
+        this.member = member;
+        this.isbn = isbn;
+        this.borrowedAt = borrowedAt;
+        this.dueAt = dueAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getMember() {
+        return member;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public Instant getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    public Instant getDueAt() {
+        return dueAt;
+    }
+
+    public Instant getReturnedAt() {
+        return returnedAt;
+    }
+
+    public Loan markReturned(Instant returnedAt) {
+        this.returnedAt = returnedAt;
+        return this;
+    }
+}
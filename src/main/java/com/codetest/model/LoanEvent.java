@@ -0,0 +1,41 @@
+package com.codetest.model;
+
+import jakarta.persistence.*;
+
+/**
+ * One borrow (delta -1) or return (delta +1) of a book in the loan journal, kept until it is applied to the book row.
+ */
+@Entity
+public class LoanEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    public LoanEvent() {
+        //hibernate default
+    }
+
+    public LoanEvent(Long bookId, Integer delta) {
+        this.bookId = bookId;
+        this.delta = delta;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+}
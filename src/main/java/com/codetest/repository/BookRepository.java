@@ -1,15 +1,54 @@
 package com.codetest.repository;
 
 import com.codetest.model.Book;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookRepository extends CrudRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     Optional<Book> findByIsbn(String isbn);
     List<Book> findByAuthor(String author);
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * @return the copies left of the book as its row has them, or null if it does not exist
+     */
+    @Query(value = "select avaliable_copies from book where isbn = :isbn", nativeQuery = true)
+    Integer findAvaliableCopies(@Param("isbn") String isbn);
+
+    /**
+     * Keyset page of an author's books, served from the author and id index without an offset scan.
+     */
+    List<Book> findByAuthorAndIdGreaterThanOrderByIdAsc(String author, Long id, Limit limit);
+
+    /**
+     * @return 1 if a copy was taken, 0 if the book has no copies left or does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update book set avaliable_copies = avaliable_copies - 1, version = version + 1 where isbn = :isbn and avaliable_copies > 0", nativeQuery = true)
+    int borrowCopy(@Param("isbn") String isbn);
+
+    /**
+     * @return 1 if a copy was put back, 0 if all copies are already in or the book does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update book set avaliable_copies = avaliable_copies + 1, version = version + 1 where isbn = :isbn and avaliable_copies < total_avaliable_copies", nativeQuery = true)
+    int returnCopy(@Param("isbn") String isbn);
 }
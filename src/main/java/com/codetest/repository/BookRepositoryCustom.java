@@ -0,0 +1,26 @@
+package com.codetest.repository;
+
+import com.codetest.model.Book;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Writes the given copy counts keyed by isbn in a single jdbc batch.
+     */
+    void updateAvaliableCopies(Map<String, Integer> copiesByIsbn);
+
+    /**
+     * Inserts new books in one transaction, flushed as jdbc batches, and detaches them afterwards
+     * so large imports do not pile up in the persistence context.
+     */
+    void insertAll(Collection<Book> books);
+
+    /**
+     * Inserts books into an empty catalogue with plain jdbc batches, taking ids from the book sequence.
+     * Nothing is checked or attached, the books given are left without ids.
+     */
+    void insertCatalogue(Collection<Book> books);
+}
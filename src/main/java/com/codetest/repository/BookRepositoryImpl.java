@@ -0,0 +1,54 @@
+package com.codetest.repository;
+
+import com.codetest.model.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void updateAvaliableCopies(Map<String, Integer> copiesByIsbn) {
+        final List<Object[]> rows = new ArrayList<>(copiesByIsbn.size());
+        copiesByIsbn.forEach((isbn, copies) -> rows.add(new Object[] {copies, isbn}));
+
+        this.jdbcTemplate.batchUpdate("update book set avaliable_copies = ?, version = version + 1 where isbn = ?", rows);
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(Collection<Book> books) {
+        for(Book book : books) {
+            this.entityManager.persist(book);
+        }
+
+        this.entityManager.flush();
+        this.entityManager.clear();
+    }
+
+    @Override
+    public void insertCatalogue(Collection<Book> books) {
+        final List<Object[]> rows = new ArrayList<>(books.size());
+        for(Book book : books) {
+            rows.add(new Object[] {book.getIsbn(), book.getTitle(), book.getAuthor(), book.getPublicationYear(),
+                    book.getTotalAvaliableCopies(), book.getTotalAvaliableCopies()});
+        }
+
+        // every row takes a whole allocation block of the sequence, so ids hibernate hands out later never collide
+        this.jdbcTemplate.batchUpdate("insert into book (id, isbn, title, author, publication_year, avaliable_copies, total_avaliable_copies, version)"
+                + " values (next value for book_seq, ?, ?, ?, ?, ?, ?, 0)", rows);
+    }
+}
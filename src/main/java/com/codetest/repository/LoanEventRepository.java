@@ -0,0 +1,9 @@
+package com.codetest.repository;
+
+import com.codetest.model.LoanEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LoanEventRepository extends JpaRepository<LoanEvent, Long>, LoanEventRepositoryCustom {
+}
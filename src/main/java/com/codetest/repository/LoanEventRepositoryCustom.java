@@ -0,0 +1,27 @@
+package com.codetest.repository;
+
+import com.codetest.model.LoanEvent;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import java.util.Collection;
+
+public interface LoanEventRepositoryCustom {
+
+    /**
+     * Appends the events to the journal in a single jdbc batch.
+     */
+    void append(Collection<LoanEvent> events);
+
+    /**
+     * Appends the events to the journal in a single jdbc batch, on the given connections rather than the application's.
+     */
+    void append(Collection<LoanEvent> events, JdbcOperations jdbc);
+
+    /**
+     * Adds up to limit of the oldest journal events to the copy counts of their books and drops them from the journal,
+     * in one transaction. An event another call has dropped first is left to that call, so none is added twice.
+     *
+     * @return the number of events applied, less than limit once the journal is drained
+     */
+    int applyToBooks(int limit);
+}
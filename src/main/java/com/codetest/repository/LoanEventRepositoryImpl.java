@@ -0,0 +1,66 @@
+package com.codetest.repository;
+
+import com.codetest.model.LoanEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoanEventRepositoryImpl implements LoanEventRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(Collection<LoanEvent> events) {
+        append(events, this.jdbcTemplate);
+    }
+
+    @Override
+    public void append(Collection<LoanEvent> events, JdbcOperations jdbc) {
+        final List<Object[]> rows = new ArrayList<>(events.size());
+        for(LoanEvent event : events) {
+            rows.add(new Object[] {event.getBookId(), event.getDelta()});
+        }
+
+        jdbc.batchUpdate("insert into loan_event (book_id, delta) values (?, ?)", rows);
+    }
+
+    @Override
+    @Transactional
+    public int applyToBooks(int limit) {
+        final List<Object[]> ids = new ArrayList<>();
+        final List<Event> events = new ArrayList<>();
+        this.jdbcTemplate.query("select id, book_id, delta from loan_event order by id limit ?", row -> {
+            ids.add(new Object[] {row.getLong(1)});
+            events.add(new Event(row.getLong(2), row.getInt(3)));
+        }, limit);
+
+        if(ids.isEmpty()) {
+            return 0;
+        }
+
+        // only the events read above are dropped, one appended meanwhile is left for the next call, and only the
+        // events this call managed to delete are added, one another call got to first has been added by that call
+        final int[] deleted = this.jdbcTemplate.batchUpdate("delete from loan_event where id = ?", ids);
+        final Map<Long, Integer> deltaByBook = new HashMap<>();
+        for(int i = 0; i < deleted.length; i++) {
+            if(deleted[i] == 1) {
+                deltaByBook.merge(events.get(i).bookId(), events.get(i).delta(), Integer::sum);
+            }
+        }
+        final List<Object[]> rows = new ArrayList<>(deltaByBook.size());
+        deltaByBook.forEach((bookId, delta) -> rows.add(new Object[] {delta, bookId}));
+        this.jdbcTemplate.batchUpdate("update book set avaliable_copies = avaliable_copies + ?, version = version + 1 where id = ?", rows);
+        return ids.size();
+    }
+
+    private record Event(long bookId, int delta) {
+    }
+}
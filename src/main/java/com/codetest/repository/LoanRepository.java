@@ -0,0 +1,40 @@
+package com.codetest.repository;
+
+import com.codetest.model.Loan;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LoanRepository extends JpaRepository<Loan, Long> {
+
+    /**
+     * Books the member has out, served from the member and returned index.
+     */
+    List<Loan> findByMemberAndReturnedAtIsNullOrderByIdAsc(String member, Limit limit);
+
+    /**
+     * Keyset page of every loan of the member, served from the member and id index.
+     */
+    List<Loan> findByMemberAndIdGreaterThanOrderByIdAsc(String member, Long id, Limit limit);
+
+    /**
+     * Members who have the book out, served from the isbn and returned index.
+     */
+    List<Loan> findByIsbnAndReturnedAtIsNullOrderByIdAsc(String isbn, Limit limit);
+
+    Optional<Loan> findFirstByMemberAndIsbnAndReturnedAtIsNullOrderByIdAsc(String member, String isbn);
+
+    /**
+     * Open loans due before the given time, longest overdue first, walked in order from the returned and due index.
+     * Ordering by returnedAt too, always null here, is what lets h2 read the rows in index order instead of sorting them.
+     */
+    @Query("select l from Loan l where l.returnedAt is null and l.dueAt < :now order by l.returnedAt, l.dueAt, l.id")
+    List<Loan> findOverdue(@Param("now") Instant now, Limit limit);
+}
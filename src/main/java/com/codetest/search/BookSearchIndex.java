@@ -0,0 +1,231 @@
+package com.codetest.search;
+
+import com.codetest.model.Book;
+import com.codetest.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In memory inverted index over book titles and authors.
+ * Every query word matches as a prefix of a word in the book, all of them have to match,
+ * and books are ranked by how rare the matched words are, with title words counting more than author
+ * words and whole words more than prefixes.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    static final float TITLE_WEIGHT = 2f;
+
+    static final float AUTHOR_WEIGHT = 1f;
+
+    static final float PREFIX_WEIGHT = 0.5f;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).thenComparing(Hit::isbn, Comparator.reverseOrder());
+
+    // sorted so that every term starting with a prefix is one contiguous range
+    private final ConcurrentSkipListMap<String, Set<String>> postings = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<String, Map<String, Float>> documents = new ConcurrentHashMap<>();
+
+    // writers take turns so that a term emptied by one is never dropped while another adds to it, searches never wait
+    private final Object writes = new Object();
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    /**
+     * Indexes the books already in the database, after which createBook and removeBook keep the index up to date.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        final long started = System.nanoTime();
+        long after = 0L;
+        List<Book> page;
+        do {
+            page = this.bookRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(LOAD_PAGE_SIZE));
+            for(Book book : page) {
+                add(book);
+            }
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while(page.size() == LOAD_PAGE_SIZE);
+
+        LOG.info("Indexed {} books for search in {} ms", size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public void add(Book book) {
+        final Map<String, Float> terms = new HashMap<>();
+        for(String term : tokenize(book.getAuthor())) {
+            terms.merge(term, AUTHOR_WEIGHT, Math::max);
+        }
+        for(String term : tokenize(book.getTitle())) {
+            terms.merge(term, TITLE_WEIGHT, Math::max);
+        }
+
+        synchronized(this.writes) {
+            final Map<String, Float> previous = this.documents.put(book.getIsbn(), terms);
+            if(previous != null) {
+                unlink(book.getIsbn(), previous);
+            }
+            for(String term : terms.keySet()) {
+                this.postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(book.getIsbn());
+            }
+        }
+    }
+
+    public void remove(String isbn) {
+        synchronized(this.writes) {
+            final Map<String, Float> terms = this.documents.remove(isbn);
+            if(terms != null) {
+                unlink(isbn, terms);
+            }
+        }
+    }
+
+    public int size() {
+        return this.documents.size();
+    }
+
+    /**
+     * @return the isbns of at most k best matching books, best first
+     */
+    public List<String> search(String query, int k) {
+        final List<String> words = tokenize(query);
+        if(words.isEmpty() || k <= 0) {
+            return List.of();
+        }
+
+        // candidates come from the most selective word, the other words are checked against each candidate's terms
+        NavigableMap<String, Set<String>> driver = null;
+        int driverSize = Integer.MAX_VALUE;
+        for(String word : words) {
+            final NavigableMap<String, Set<String>> matches = prefixRange(word);
+            int size = 0;
+            for(Set<String> isbns : matches.values()) {
+                size += isbns.size();
+            }
+            if(size == 0) {
+                return List.of();
+            }
+            if(size < driverSize) {
+                driver = matches;
+                driverSize = size;
+            }
+        }
+
+        final PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, RANKING);
+        final Set<String> seen = new HashSet<>();
+        for(Set<String> isbns : driver.values()) {
+            for(String isbn : isbns) {
+                if(!seen.add(isbn)) {
+                    continue;
+                }
+
+                final double score = score(words, this.documents.get(isbn));
+                if(score > 0) {
+                    best.add(new Hit(isbn, score));
+                    if(best.size() > k) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        final List<String> ranked = new ArrayList<>(best.size());
+        while(!best.isEmpty()) {
+            ranked.add(best.poll().isbn());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    /**
+     * @return 0 unless every word is a prefix of one of the terms
+     */
+    private double score(List<String> words, Map<String, Float> terms) {
+        if(terms == null) {
+            return 0;
+        }
+
+        double score = 0;
+        for(String word : words) {
+            double bestTerm = 0;
+            for(Map.Entry<String, Float> term : terms.entrySet()) {
+                if(term.getKey().startsWith(word)) {
+                    final double exact = term.getKey().length() == word.length() ? 1 : PREFIX_WEIGHT;
+                    bestTerm = Math.max(bestTerm, term.getValue() * exact * idf(term.getKey()));
+                }
+            }
+            if(bestTerm == 0) {
+                return 0;
+            }
+            score += bestTerm;
+        }
+        return score;
+    }
+
+    private double idf(String term) {
+        final Set<String> isbns = this.postings.get(term);
+        final int frequency = isbns == null ? 1 : Math.max(1, isbns.size());
+        return Math.log(1 + (double) this.documents.size() / frequency);
+    }
+
+    private NavigableMap<String, Set<String>> prefixRange(String prefix) {
+        return this.postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private void unlink(String isbn, Map<String, Float> terms) {
+        for(String term : terms.keySet()) {
+            final Set<String> isbns = this.postings.get(term);
+            if(isbns != null && isbns.remove(isbn) && isbns.isEmpty()) {
+                this.postings.remove(term, isbns);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        final List<String> tokens = new ArrayList<>();
+        if(text == null) {
+            return tokens;
+        }
+
+        final String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for(int i = 0; i <= lower.length(); i++) {
+            final boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if(word && start < 0) {
+                start = i;
+            } else if(!word && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private record Hit(String isbn, double score) {
+    }
+}
@@ -0,0 +1,207 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import com.codetest.model.BookView;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Streams the changes Library makes to books, once they commit, to any number of subscribers.
+ * Events are numbered and handed out on one thread, which is also the only one touching the ring of the last
+ * books.events.replay events and the set of subscribers, so a subscriber joins at an exact point of the stream.
+ * Every subscriber has a buffer of books.events.buffer events for when its client reads slower than books change,
+ * what happens once that is full is up to books.events.slow-consumer.
+ */
+@Component
+public class BookEvents {
+
+    public enum SlowConsumer {
+        /** the stream ends after what is buffered, the client resumes from the ring with the last sequence it saw */
+        DISCONNECT,
+        /** the oldest buffered event makes way for the new one, the client sees a gap in sequence numbers */
+        DROP_OLDEST
+    }
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Scheduler fanOut = Schedulers.newSingle("book-events", true);
+
+    private final BookEvent[] ring;
+
+    private final int buffer;
+
+    private final SlowConsumer slowConsumer;
+
+    // only touched on the fan out thread
+    private final Set<Subscriber> subscribers = new HashSet<>();
+
+    private long sequence;
+
+    private volatile boolean closed;
+
+    public BookEvents(@Value("${books.events.replay}") int replay,
+                      @Value("${books.events.buffer}") int buffer,
+                      @Value("${books.events.slow-consumer}") SlowConsumer slowConsumer) {
+        this.ring = new BookEvent[replay];
+        this.buffer = buffer;
+        this.slowConsumer = slowConsumer;
+    }
+
+    /**
+     * Sends out the change to the book once the surrounding transaction commits, if there is one.
+     * The book is read as it is when the event is numbered rather than when published, so when transactions changing
+     * the same book commit out of order the event with the highest sequence still carries its latest count.
+     */
+    public void publish(BookEvent.Type type, Book book) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onFanOut(() -> emit(type, book));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onFanOut(() -> emit(type, book));
+            }
+        });
+    }
+
+    /**
+     * @param after the sequence of the last event the subscriber saw, or null for only the events from now on
+     */
+    public Flux<BookEvent> stream(Long after) {
+        return Flux.create(sink -> {
+            final Subscriber subscriber = new Subscriber(sink);
+            sink.onRequest(n -> subscriber.drain());
+            sink.onDispose(() -> onFanOut(() -> this.subscribers.remove(subscriber)));
+            onFanOut(() -> {
+                if(after != null) {
+                    subscriber.replay(since(after));
+                }
+                this.subscribers.add(subscriber);
+                subscriber.drain();
+            });
+        });
+    }
+
+    /**
+     * Completes every stream, whose clients can resume elsewhere with the last sequence they saw.
+     */
+    @PreDestroy
+    public void close() {
+        if(this.closed) {
+            return;
+        }
+        // from here on nothing is scheduled, completing a stream would otherwise schedule its removal
+        // on the fan out thread as it shuts down
+        this.closed = true;
+        this.fanOut.schedule(() -> {
+            for(Subscriber subscriber : this.subscribers) {
+                subscriber.sink.complete();
+            }
+            this.subscribers.clear();
+        });
+        this.fanOut.disposeGracefully().block(SHUTDOWN_TIMEOUT);
+    }
+
+    private void onFanOut(Runnable task) {
+        if(!this.closed) {
+            this.fanOut.schedule(task);
+        }
+    }
+
+    private void emit(BookEvent.Type type, Book book) {
+        final BookEvent event = new BookEvent(++this.sequence, type, BookView.of(book));
+        this.ring[(int) (event.sequence() % this.ring.length)] = event;
+        this.subscribers.removeIf(subscriber -> !subscriber.offer(event));
+    }
+
+    /**
+     * @return the kept events after the given sequence, led by a RESET if some of those are no longer kept or the
+     * sequence is not one of this run's
+     */
+    private List<BookEvent> since(long after) {
+        final long oldest = Math.max(1, this.sequence - this.ring.length + 1);
+        final List<BookEvent> events = new ArrayList<>();
+        long from = after + 1;
+        // a sequence from before a restart is ahead of this one, as numbering starts over
+        if(after > this.sequence || from < oldest) {
+            events.add(new BookEvent(oldest - 1, BookEvent.Type.RESET, null));
+            from = oldest;
+        }
+        for(long s = from; s <= this.sequence; s++) {
+            events.add(this.ring[(int) (s % this.ring.length)]);
+        }
+        return events;
+    }
+
+    private final class Subscriber {
+
+        private final FluxSink<BookEvent> sink;
+
+        private final Queue<BookEvent> replay = new ArrayDeque<>();
+
+        private final ArrayBlockingQueue<BookEvent> live = new ArrayBlockingQueue<>(BookEvents.this.buffer);
+
+        private volatile boolean overflowed;
+
+        Subscriber(FluxSink<BookEvent> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void replay(List<BookEvent> events) {
+            this.replay.addAll(events);
+        }
+
+        /**
+         * @return false once the subscriber is to be dropped
+         */
+        boolean offer(BookEvent event) {
+            if(!this.live.offer(event)) {
+                if(BookEvents.this.slowConsumer == SlowConsumer.DISCONNECT) {
+                    this.overflowed = true;
+                    drain();
+                    return false;
+                }
+                this.live.poll();
+                this.live.offer(event);
+            }
+            drain();
+            return true;
+        }
+
+        /**
+         * Sends as many events as the client asked for, the replayed ones first. Buffered events only leave once
+         * asked for, so a client that stops reading is what fills its buffer.
+         */
+        synchronized void drain() {
+            while(this.sink.requestedFromDownstream() > 0 && !this.sink.isCancelled()) {
+                final BookEvent event = this.replay.isEmpty() ? this.live.poll() : this.replay.poll();
+                if(event == null) {
+                    break;
+                }
+                this.sink.next(event);
+            }
+            if(this.overflowed && this.replay.isEmpty() && this.live.isEmpty()) {
+                this.sink.complete();
+            }
+        }
+    }
+}
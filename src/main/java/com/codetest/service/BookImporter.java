@@ -0,0 +1,154 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import com.codetest.model.ImportResult;
+import com.codetest.model.ImportResult.Rejection;
+import com.codetest.repository.BookRepository;
+import com.codetest.search.BookSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts a stream of books in batches of import.batch-size. A row that cannot be read or inserted is
+ * reported back with its isbn, if it has one, and left out, the rest of its batch still goes in.
+ * Every book that goes in is streamed as created once its batch has committed.
+ */
+@Service
+public class BookImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookImporter.class);
+
+    public static final String MISSING_VALUES = "required values are missing";
+
+    public static final String REPEATED_ISBN = "isbn is repeated in the import";
+
+    public static final String EXISTING_ISBN = "isbn already exists";
+
+    public static final String MALFORMED_ROW = "row could not be read";
+
+    public static final String UNREADABLE_REST = "rest of the import could not be read";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchIndex searchIndex;
+
+    @Autowired
+    private BookEvents events;
+
+    @Value("${import.batch-size}")
+    private int batchSize;
+
+    public ImportResult importBooks(Iterator<Book> books) {
+        final long started = System.nanoTime();
+        final List<Rejection> rejected = new ArrayList<>();
+        final List<Book> batch = new ArrayList<>(this.batchSize);
+        int imported = 0;
+
+        while(hasNext(books, rejected)) {
+            final Book book;
+            try {
+                book = books.next();
+            } catch (RuntimeException ex) {
+                // the readers move past a row they fail on, so the batches before and after it still go in
+                rejected.add(new Rejection(null, MALFORMED_ROW));
+                continue;
+            }
+
+            batch.add(book);
+            if(batch.size() == this.batchSize) {
+                imported += importBatch(batch, rejected);
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()) {
+            imported += importBatch(batch, rejected);
+        }
+
+        LOG.info("Imported {} books and rejected {} in {} ms", imported, rejected.size(), (System.nanoTime() - started) / 1_000_000);
+        return new ImportResult(imported, rejected);
+    }
+
+    /**
+     * @return false at the end of the books, or where the rest of them cannot be read
+     */
+    private static boolean hasNext(Iterator<Book> books, List<Rejection> rejected) {
+        try {
+            return books.hasNext();
+        } catch (RuntimeException ex) {
+            rejected.add(new Rejection(null, UNREADABLE_REST));
+            return false;
+        }
+    }
+
+    private int importBatch(List<Book> batch, List<Rejection> rejected) {
+        final Map<String, Book> booksByIsbn = new LinkedHashMap<>();
+        for(Book book : batch) {
+            if(book.getIsbn() == null || book.getTitle() == null || book.getAuthor() == null || book.getPublicationYear() == null) {
+                rejected.add(new Rejection(book.getIsbn(), MISSING_VALUES));
+            } else if(booksByIsbn.putIfAbsent(book.getIsbn(), book) != null) {
+                rejected.add(new Rejection(book.getIsbn(), REPEATED_ISBN));
+            }
+        }
+        if(booksByIsbn.isEmpty()) {
+            return 0;
+        }
+
+        for(String isbn : this.bookRepository.findExistingIsbns(booksByIsbn.keySet())) {
+            booksByIsbn.remove(isbn);
+            rejected.add(new Rejection(isbn, EXISTING_ISBN));
+        }
+        if(booksByIsbn.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            insert(copies(booksByIsbn.values()));
+            return booksByIsbn.size();
+        } catch (DataIntegrityViolationException ex) {
+            // another writer took one of the isbns after the check, so find it one row at a time
+            int imported = 0;
+            for(Book book : booksByIsbn.values()) {
+                try {
+                    insert(copies(List.of(book)));
+                    imported++;
+                } catch (DataIntegrityViolationException rowEx) {
+                    rejected.add(new Rejection(book.getIsbn(), EXISTING_ISBN));
+                }
+            }
+            return imported;
+        }
+    }
+
+    private void insert(List<Book> books) {
+        this.bookRepository.insertAll(books);
+        for(Book book : books) {
+            this.searchIndex.add(book);
+            this.events.publish(BookEvent.Type.CREATED, book);
+        }
+    }
+
+    /**
+     * A failed insert leaves ids on the books it persisted, so every attempt starts from fresh copies.
+     */
+    private static List<Book> copies(Iterable<Book> books) {
+        final List<Book> copies = new ArrayList<>();
+        for(Book book : books) {
+            copies.add(new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getPublicationYear(),
+                    book.getTotalAvaliableCopies() == null ? 0 : book.getTotalAvaliableCopies()));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,168 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import com.codetest.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Warms the node up before it takes traffic. An empty database is seeded from the catalogue snapshot at
+ * catalogue.snapshot.path if there is one, and the books cache is filled with up to catalogue.warm-up.books books.
+ * Runners finish before the application is ready, so the readiness probe only reports accepting traffic after this.
+ * Seeding is one transaction, so a node that dies partway leaves the database empty and seeds it again on the next start.
+ * Once it has committed every seeded book is streamed as created, read back a page at a time with the warm-up.
+ */
+@Service
+public class CatalogueLoader implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogueLoader.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookEvents events;
+
+    @Value("${catalogue.snapshot.path}")
+    private String snapshotPath;
+
+    @Value("${catalogue.snapshot.mapped}")
+    private boolean mapped;
+
+    @Value("${catalogue.warm-up.books}")
+    private int warmUpBooks;
+
+    @Value("${import.batch-size}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        final long started = System.nanoTime();
+        final Cache books = this.cacheManager.getCache("books");
+
+        int seeded = 0;
+        if(!this.snapshotPath.isEmpty() && Files.exists(Path.of(this.snapshotPath)) && this.bookRepository.count() == 0) {
+            seeded = seed(CatalogueSnapshot.read(Path.of(this.snapshotPath), this.mapped));
+        }
+
+        int cached = 0;
+        long after = 0L;
+        // the database was empty before a seed, so every book read back after one is a seeded book
+        while(cached < this.warmUpBooks || seeded > 0) {
+            final int size = seeded > 0 ? this.batchSize : Math.min(this.batchSize, this.warmUpBooks - cached);
+            final List<Book> page = this.bookRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size));
+            if(page.isEmpty()) {
+                break;
+            }
+            for(Book book : page) {
+                if(cached < this.warmUpBooks) {
+                    // put in as a load, the same as any cache miss, so a coherent cache does not take it for a change
+                    books.putIfAbsent(book.getIsbn(), book);
+                    cached++;
+                }
+                if(seeded > 0) {
+                    this.events.publish(BookEvent.Type.CREATED, book);
+                }
+            }
+            after = page.get(page.size() - 1).getId();
+        }
+
+        LOG.info("Seeded {} books from the catalogue snapshot and cached {} in {} ms", seeded, cached, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Inserts the books in batches of import.batch-size, all in one transaction.
+     *
+     * @return the number of books inserted
+     */
+    int seed(Iterator<Book> snapshot) {
+        return new TransactionTemplate(this.transactionManager).execute(status -> {
+            int seeded = 0;
+            final List<Book> batch = new ArrayList<>(this.batchSize);
+            while(snapshot.hasNext()) {
+                batch.add(snapshot.next());
+                if(batch.size() == this.batchSize || !snapshot.hasNext()) {
+                    // no checks as in BookImporter, the database was empty and the snapshot came from one catalogue
+                    this.bookRepository.insertCatalogue(batch);
+                    seeded += batch.size();
+                    batch.clear();
+                }
+            }
+            return seeded;
+        });
+    }
+
+    /**
+     * Writes every book in the database to the catalogue snapshot, a page at a time.
+     *
+     * @return the number of books written
+     */
+    public int writeSnapshot() throws IOException {
+        if(this.snapshotPath.isEmpty()) {
+            throw new IllegalStateException("No catalogue.snapshot.path is set");
+        }
+        return CatalogueSnapshot.write(Path.of(this.snapshotPath), new Pages());
+    }
+
+    private final class Pages implements Iterator<Book> {
+
+        private List<Book> page = List.of();
+
+        private int next;
+
+        private long after;
+
+        private boolean last;
+
+        @Override
+        public boolean hasNext() {
+            if(this.next < this.page.size()) {
+                return true;
+            }
+            if(this.last) {
+                return false;
+            }
+
+            this.page = CatalogueLoader.this.bookRepository.findByIdGreaterThanOrderByIdAsc(this.after, Limit.of(CatalogueLoader.this.batchSize));
+            this.next = 0;
+            this.last = this.page.size() < CatalogueLoader.this.batchSize;
+            if(!this.page.isEmpty()) {
+                this.after = this.page.get(this.page.size() - 1).getId();
+            }
+            return !this.page.isEmpty();
+        }
+
+        @Override
+        public Book next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.page.get(this.next++);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary file of the catalogue, the books without their loans, to seed an empty database at startup.
+ * After a four byte magic every book is written as its publication year and total copies, then its isbn,
+ * title and author each as a length and utf-8 bytes, all big endian as DataOutputStream writes them.
+ */
+public final class CatalogueSnapshot {
+
+    static final int MAGIC = 0x424B5331;
+
+    private CatalogueSnapshot() {
+    }
+
+    /**
+     * Writes to a file next to the path first and moves it in place, so a reader never sees half a snapshot.
+     *
+     * @return the number of books written
+     */
+    public static int write(Path path, Iterator<Book> books) throws IOException {
+        final Path partial = path.resolveSibling(path.getFileName() + ".partial");
+        int written = 0;
+        try(OutputStream file = Files.newOutputStream(partial);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            while(books.hasNext()) {
+                final Book book = books.next();
+                out.writeInt(book.getPublicationYear());
+                out.writeInt(book.getTotalAvaliableCopies() == null ? 0 : book.getTotalAvaliableCopies());
+                writeString(out, book.getIsbn());
+                writeString(out, book.getTitle());
+                writeString(out, book.getAuthor());
+                written++;
+            }
+        }
+
+        Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * Reads the books back with all copies in. When mapped the file is paged in by the os as it is read,
+     * instead of being copied onto the heap first.
+     */
+    public static Iterator<Book> read(Path path, boolean mapped) throws IOException {
+        final ByteBuffer buffer;
+        if(mapped) {
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } else {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+
+        if(buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a catalogue snapshot : " + path);
+        }
+        return new Reader(buffer);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static final class Reader implements Iterator<Book> {
+
+        private final ByteBuffer buffer;
+
+        // grown as needed and reused for every string, so decoding copies each one only once
+        private byte[] scratch = new byte[256];
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.buffer.hasRemaining();
+        }
+
+        @Override
+        public Book next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                final int publicationYear = this.buffer.getInt();
+                final int totalCopies = this.buffer.getInt();
+                return new Book(readString(), readString(), readString(), publicationYear, totalCopies);
+            } catch (BufferUnderflowException ex) {
+                throw new IllegalStateException("Catalogue snapshot ends in the middle of a book", ex);
+            }
+        }
+
+        private String readString() {
+            final int length = this.buffer.getInt();
+            if(length > this.scratch.length) {
+                this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+            }
+            this.buffer.get(this.scratch, 0, length);
+            return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
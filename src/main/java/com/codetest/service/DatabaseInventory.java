@@ -0,0 +1,52 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Changes the copy count with a single conditional update on the book row, so the database
+ * guards the limits and the count stays right when several nodes share it.
+ */
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "database", matchIfMissing = true)
+@Component
+public class DatabaseInventory implements Inventory {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Override
+    public boolean borrow(Book book) {
+        if(this.bookRepository.borrowCopy(book.getIsbn()) == 0) {
+            // the update only misses when no copies are left, so a stale count can be corrected for free
+            book.updateCopies(0);
+            return false;
+        }
+
+        book.reduceCopy();
+        return true;
+    }
+
+    @Override
+    public boolean giveBack(Book book) {
+        if(this.bookRepository.returnCopy(book.getIsbn()) == 0) {
+            book.updateCopies(book.getTotalAvaliableCopies());
+            return false;
+        }
+
+        book.increaseCopy();
+        return true;
+    }
+
+    @Override
+    public void rolledBack(Book book, int copies) {
+        // the row rolled back, and the book changed in place is dropped from the cache by the caller
+    }
+
+    @Override
+    public void forget(String isbn) {
+        //nothing is held outside the book row
+    }
+}
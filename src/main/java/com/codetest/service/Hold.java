@@ -0,0 +1,99 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A member waiting in line for a copy of a book. The hold is granted, with a loan opened for the member,
+ * when a copy comes back and every earlier hold has been served.
+ */
+public class Hold {
+
+    enum State { WAITING, GRANTED, CANCELLED }
+
+    private final String isbn;
+
+    private final String member;
+
+    private final long placed;
+
+    private final Instant placedAt = Instant.now();
+
+    private volatile Instant grantedAt;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.WAITING);
+
+    private final CompletableFuture<Book> granted = new CompletableFuture<>();
+
+    Hold(String isbn, String member, long placed) {
+        this.isbn = isbn;
+        this.member = member;
+        this.placed = placed;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getMember() {
+        return member;
+    }
+
+    /**
+     * @return the place of the hold in line, earlier holds having lower places
+     */
+    long getPlaced() {
+        return placed;
+    }
+
+    public Instant getPlacedAt() {
+        return placedAt;
+    }
+
+    /**
+     * @return when the member was handed a copy, or null if they have not been
+     */
+    public Instant getGrantedAt() {
+        return grantedAt;
+    }
+
+    public boolean isWaiting() {
+        return this.state.get() == State.WAITING;
+    }
+
+    /**
+     * Completes with the book once a copy has been handed to the member, or fails if the book is removed.
+     */
+    public CompletableFuture<Book> granted() {
+        return this.granted;
+    }
+
+    /**
+     * Lets the member know the copy with its loan is theirs, once the loan has committed.
+     */
+    void grant(Book book) {
+        this.grantedAt = Instant.now();
+        this.granted.complete(book);
+    }
+
+    /**
+     * @return true for the one caller that gets to hand this hold a copy
+     */
+    boolean claim() {
+        return this.state.compareAndSet(State.WAITING, State.GRANTED);
+    }
+
+    /**
+     * Puts a claimed hold back to waiting, when handing it the copy did not go through.
+     */
+    void unclaim() {
+        this.state.compareAndSet(State.GRANTED, State.WAITING);
+    }
+
+    boolean cancel() {
+        return this.state.compareAndSet(State.WAITING, State.CANCELLED);
+    }
+}
@@ -0,0 +1,152 @@
+package com.codetest.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * First in first out queues of holds, one per isbn, ordered by when each hold was placed. The queues are lock free
+ * and a member holds a book at most once, so thousands of members waiting on one book never contend with those
+ * waiting on another. Granted and cancelled holds are only dropped once they reach the head of their queue.
+ * A granted hold can still be found by its member until it is collected, or for holds.granted-ttl.
+ */
+@Component
+public class HoldQueues {
+
+    private final AtomicLong placed = new AtomicLong();
+
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Hold>> queues = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<HoldKey, Hold> holds = new ConcurrentHashMap<>();
+
+    @Value("${holds.granted-ttl}")
+    private Duration grantedTtl;
+
+    /**
+     * @return the member's hold on the book, placed at the back of the line if there was none, or only one already granted
+     */
+    Hold join(String isbn, String member) {
+        return this.holds.compute(new HoldKey(isbn, member), (key, existing) -> {
+            if(existing != null && !existing.granted().isDone()) {
+                return existing;
+            }
+
+            final Hold hold = new Hold(isbn, member, this.placed.incrementAndGet());
+            queue(isbn).put(hold.getPlaced(), hold);
+            return hold;
+        });
+    }
+
+    /**
+     * @return the longest waiting hold on the book, or null if no one is waiting
+     */
+    Hold next(String isbn) {
+        final ConcurrentNavigableMap<Long, Hold> queue = this.queues.get(isbn);
+        if(queue == null) {
+            return null;
+        }
+
+        Map.Entry<Long, Hold> head;
+        while((head = queue.firstEntry()) != null && !head.getValue().isWaiting()) {
+            queue.remove(head.getKey(), head.getValue());
+        }
+        return head == null ? null : head.getValue();
+    }
+
+    boolean hasWaiting(String isbn) {
+        return next(isbn) != null;
+    }
+
+    /**
+     * Takes a hold that was handed a copy out of line. Its member still finds it until it is collected.
+     */
+    void granted(Hold hold) {
+        final ConcurrentNavigableMap<Long, Hold> queue = this.queues.get(hold.getIsbn());
+        if(queue != null) {
+            queue.remove(hold.getPlaced(), hold);
+        }
+    }
+
+    /**
+     * Puts a hold whose handoff failed back in line, in the place it had.
+     */
+    void requeue(Hold hold) {
+        hold.unclaim();
+        this.holds.putIfAbsent(new HoldKey(hold.getIsbn(), hold.getMember()), hold);
+        queue(hold.getIsbn()).put(hold.getPlaced(), hold);
+    }
+
+    /**
+     * Forgets a granted hold once its member has been handed the book.
+     */
+    void collected(Hold hold) {
+        this.holds.remove(new HoldKey(hold.getIsbn(), hold.getMember()), hold);
+    }
+
+    /**
+     * @return the member's hold on the book, waiting or granted and not yet collected
+     */
+    Optional<Hold> find(String isbn, String member) {
+        return Optional.ofNullable(this.holds.get(new HoldKey(isbn, member)));
+    }
+
+    /**
+     * @return false if the member had no waiting hold on the book
+     */
+    boolean cancel(String isbn, String member) {
+        final Hold hold = this.holds.get(new HoldKey(isbn, member));
+        if(hold == null || !hold.cancel()) {
+            return false;
+        }
+        this.holds.remove(new HoldKey(isbn, member), hold);
+        return true;
+    }
+
+    /**
+     * Cancels every hold on a book that has been removed, and drops those granted but not collected.
+     *
+     * @return the holds that were still waiting
+     */
+    List<Hold> forget(String isbn) {
+        final List<Hold> cancelled = new ArrayList<>();
+        final ConcurrentNavigableMap<Long, Hold> queue = this.queues.remove(isbn);
+        if(queue != null) {
+            for(Hold hold : queue.values()) {
+                if(hold.cancel()) {
+                    cancelled.add(hold);
+                }
+            }
+        }
+        this.holds.keySet().removeIf(key -> key.isbn().equals(isbn));
+        return cancelled;
+    }
+
+    /**
+     * Drops granted holds their members never came back for.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void expire() {
+        final Instant before = Instant.now().minus(this.grantedTtl);
+        this.holds.values().removeIf(hold -> hold.getGrantedAt() != null && hold.getGrantedAt().isBefore(before));
+    }
+
+    private ConcurrentNavigableMap<Long, Hold> queue(String isbn) {
+        return this.queues.computeIfAbsent(isbn, i -> new ConcurrentSkipListMap<>());
+    }
+
+    private record HoldKey(String isbn, String member) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.repository.BookRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the copy counts of every book touched by a borrow or return in memory, keyed by isbn,
+ * and writes changed counts back to the database in batches.
+ * Only safe while a single node owns the counts.
+ */
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "memory")
+@Component
+public class InMemoryInventory implements Inventory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryInventory.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final Stocks stocks = new Stocks();
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean borrow(Book book) {
+        final int copies = this.stocks.of(book).take();
+        if(copies < 0) {
+            return false;
+        }
+
+        book.updateCopies(copies);
+        this.dirty.add(book.getIsbn());
+        return true;
+    }
+
+    @Override
+    public boolean giveBack(Book book) {
+        final int copies = this.stocks.of(book).put();
+        if(copies < 0) {
+            return false;
+        }
+
+        book.updateCopies(copies);
+        this.dirty.add(book.getIsbn());
+        return true;
+    }
+
+    @Override
+    public void rolledBack(Book book, int copies) {
+        if(this.stocks.undo(book, copies)) {
+            this.dirty.add(book.getIsbn());
+        }
+    }
+
+    @Override
+    public void forget(String isbn) {
+        this.stocks.remove(isbn);
+        this.dirty.remove(isbn);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.flush-interval-ms}")
+    public void flush() {
+        final Map<String, Integer> copiesByIsbn = new HashMap<>();
+        final Iterator<String> isbns = this.dirty.iterator();
+
+        // removing before reading the count means a concurrent change marks the isbn dirty again for the next flush
+        while(isbns.hasNext()) {
+            final String isbn = isbns.next();
+            isbns.remove();
+
+            final Stocks.Stock stock = this.stocks.get(isbn);
+            if(stock != null) {
+                copiesByIsbn.put(isbn, stock.available());
+            }
+        }
+
+        if(copiesByIsbn.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.bookRepository.updateAvaliableCopies(copiesByIsbn);
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not write back copies for {} books, will retry", copiesByIsbn.size(), ex);
+            this.dirty.addAll(copiesByIsbn.keySet());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+}
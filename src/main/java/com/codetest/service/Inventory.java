@@ -0,0 +1,35 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+
+/**
+ * Owns the available copy count of books for borrow and return.
+ * The implementation is picked with the inventory.mode property.
+ */
+public interface Inventory {
+
+    /**
+     * Takes one copy of the book if any is left, and updates the book to the new count.
+     *
+     * @return false if no copies were available
+     */
+    boolean borrow(Book book);
+
+    /**
+     * Puts one copy of the book back if not all copies are already in, and updates the book to the new count.
+     *
+     * @return false if all copies were already available
+     */
+    boolean giveBack(Book book);
+
+    /**
+     * Undoes in memory the copies that a transaction which rolled back took (negative) or put back (positive).
+     * Whatever the transaction wrote to the database has rolled back with it.
+     */
+    void rolledBack(Book book, int copies);
+
+    /**
+     * Drops anything held for a book that has been removed.
+     */
+    void forget(String isbn);
+}
@@ -0,0 +1,302 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.LoanEvent;
+import com.codetest.repository.LoanEventRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps copy counts in memory like InMemoryInventory, but records every borrow and return as an event in the
+ * loan_event journal rather than writing counts. A background flusher adds the journaled deltas to the book rows,
+ * and whatever was journaled but not yet applied is replayed onto the book rows at startup.
+ * How soon an event is in the journal depends on inventory.journal.durability. Only safe while a single node owns the counts.
+ * Group and async events are only queued once the caller's transaction commits, so a rollback journals nothing.
+ * Their commits run on a thread and a connection of their own, as group commit callers still hold a pool connection
+ * while they wait, and a failed commit is retried until its events are in. A group commit caller waits at most
+ * inventory.journal.commit-timeout, and is then failed with its event left queued, as its transaction has committed.
+ */
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "journal")
+@Component
+public class JournalInventory implements Inventory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournalInventory.class);
+
+    private static final int APPLY_BATCH_SIZE = 10_000;
+
+    public enum Durability {
+        /** the event is inserted before borrow or return comes back */
+        SYNC,
+        /** the event is inserted with others at the next commit after the transaction's, which the caller waits for */
+        GROUP,
+        /** the event is inserted at the next commit after the transaction's, the caller does not wait for it */
+        ASYNC
+    }
+
+    @Autowired
+    private LoanEventRepository journal;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${inventory.journal.durability}")
+    private Durability durability;
+
+    @Value("${inventory.journal.commit-interval-ms}")
+    private long commitInterval;
+
+    @Value("${inventory.journal.commit-timeout}")
+    private Duration commitTimeout;
+
+    private ScheduledExecutorService committing;
+
+    private HikariDataSource committer;
+
+    private JdbcTemplate commits;
+
+    private final Stocks stocks = new Stocks();
+
+    private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    // applying reads events before it deletes them, so two at once would add the same events twice
+    private final ReentrantLock applying = new ReentrantLock();
+
+    @Override
+    public boolean borrow(Book book) {
+        final Stocks.Stock stock = this.stocks.of(book);
+        final int copies = stock.take();
+        if(copies < 0) {
+            return false;
+        }
+
+        final LoanEvent event = new LoanEvent(book.getId(), -1);
+        final CompletableFuture<Void> committed;
+        try {
+            committed = record(event);
+        } catch (RuntimeException ex) {
+            stock.put();
+            throw ex;
+        }
+        book.updateCopies(copies);
+        // past this point the change stands, a caller that gives up waiting leaves its event queued
+        await(event, committed);
+        return true;
+    }
+
+    @Override
+    public boolean giveBack(Book book) {
+        final Stocks.Stock stock = this.stocks.of(book);
+        final int copies = stock.put();
+        if(copies < 0) {
+            return false;
+        }
+
+        final LoanEvent event = new LoanEvent(book.getId(), 1);
+        final CompletableFuture<Void> committed;
+        try {
+            committed = record(event);
+        } catch (RuntimeException ex) {
+            stock.take();
+            throw ex;
+        }
+        book.updateCopies(copies);
+        // past this point the change stands, a caller that gives up waiting leaves its event queued
+        await(event, committed);
+        return true;
+    }
+
+    @Override
+    public void rolledBack(Book book, int copies) {
+        // nothing was journaled for a transaction that rolled back
+        this.stocks.undo(book, copies);
+    }
+
+    @Override
+    public void forget(String isbn) {
+        // events still journaled for the removed book match no row when applied
+        this.stocks.remove(isbn);
+    }
+
+    /**
+     * @return the group commit to wait for when there is no transaction to wait after, otherwise null
+     */
+    private CompletableFuture<Void> record(LoanEvent event) {
+        if(this.durability == Durability.SYNC) {
+            // inserted on the caller's connection, so it rolls back with the caller's transaction
+            this.journal.append(List.of(event));
+            return null;
+        } else if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // registered only now so that it comes after everything the transaction registered, as a group
+                    // commit that times out fails the call, and would otherwise keep later synchronizations from running
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            await(event, enqueue(event));
+                        }
+                    });
+                }
+            });
+            return null;
+        } else {
+            return enqueue(event);
+        }
+    }
+
+    /**
+     * @return the group commit the event goes in, or null if nobody waits for it
+     */
+    private CompletableFuture<Void> enqueue(LoanEvent event) {
+        final CompletableFuture<Void> committed = this.durability == Durability.ASYNC ? null : new CompletableFuture<>();
+        this.pending.add(new Pending(event, committed));
+        return committed;
+    }
+
+    private void await(LoanEvent event, CompletableFuture<Void> committed) {
+        if(committed == null) {
+            return;
+        }
+
+        try {
+            committed.get(this.commitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new TransientDataAccessResourceException("Loan event of book " + event.getBookId()
+                    + " was not journaled within " + this.commitTimeout + ", it stays queued");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted waiting for the journal, the loan event stays queued");
+        } catch (ExecutionException ex) {
+            // never completed exceptionally, failed commits are retried
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Inserts every event waiting for the journal in one batch, and releases the group commit callers waiting on them.
+     * Runs every inventory.journal.commit-interval-ms on a thread of its own.
+     */
+    public void commit() {
+        final List<Pending> batch = new ArrayList<>();
+        Pending next;
+        while((next = this.pending.poll()) != null) {
+            batch.add(next);
+        }
+        if(batch.isEmpty()) {
+            return;
+        }
+
+        final List<LoanEvent> events = new ArrayList<>(batch.size());
+        for(Pending waiting : batch) {
+            events.add(waiting.event());
+        }
+
+        try {
+            this.journal.append(events, this.commits);
+        } catch (RuntimeException ex) {
+            // the borrows and returns behind these events have committed, so the events are owed to the journal
+            LOG.warn("Could not journal {} loan events, will retry", events.size(), ex);
+            this.pending.addAll(batch);
+            return;
+        }
+
+        for(Pending waiting : batch) {
+            if(waiting.committed() != null) {
+                waiting.committed().complete(null);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.flush-interval-ms}")
+    public void apply() {
+        try {
+            applyAll();
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not apply the loan journal to books, will retry", ex);
+        }
+    }
+
+    /**
+     * Brings the book rows up to date with events journaled before the last shutdown, before any count is read into memory.
+     */
+    public void replay() {
+        final int replayed = applyAll();
+        if(replayed > 0) {
+            LOG.info("Replayed {} loan events from the journal", replayed);
+        }
+    }
+
+    private int applyAll() {
+        this.applying.lock();
+        try {
+            int total = 0;
+            int applied;
+            do {
+                applied = this.journal.applyToBooks(APPLY_BATCH_SIZE);
+                total += applied;
+            } while(applied == APPLY_BATCH_SIZE);
+            return total;
+        } finally {
+            this.applying.unlock();
+        }
+    }
+
+    /**
+     * Replays the journal and starts committing on the commit connection.
+     */
+    @PostConstruct
+    public void start() {
+        this.committer = this.dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.committer.setPoolName("journal");
+        this.committer.setMaximumPoolSize(1);
+        this.commits = new JdbcTemplate(this.committer);
+
+        replay();
+
+        // apart from the shared scheduler, so a slow flush or apply never holds back group commit callers
+        this.committing = Executors.newSingleThreadScheduledExecutor(task -> {
+            final Thread thread = new Thread(task, "journal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.committing.scheduleWithFixedDelay(this::commit, this.commitInterval, this.commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        this.committing.shutdown();
+        this.committing.awaitTermination(5, TimeUnit.SECONDS);
+        commit();
+        apply();
+        this.committer.close();
+    }
+
+    private record Pending(LoanEvent event, CompletableFuture<Void> committed) {
+    }
+}
@@ -1,16 +1,46 @@
 package com.codetest.service;
 
 import com.codetest.exception.BookNotFoundException;
+import com.codetest.exception.LibraryException;
+import com.codetest.exception.OutOfStockException;
+import com.codetest.exception.OverReturnException;
+import com.codetest.metrics.LibraryMetrics;
 import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import com.codetest.model.Loan;
 import com.codetest.repository.BookRepository;
+import com.codetest.repository.LoanRepository;
+import com.codetest.search.BookSearchIndex;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 public class Library {
@@ -18,53 +48,454 @@ public class Library {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private Inventory inventory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BookSearchIndex searchIndex;
+
+    @Autowired
+    private LibraryMetrics metrics;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private HoldQueues holds;
+
+    @Autowired
+    private BookEvents events;
+
+    @Value("${datasource.replica.enabled}")
+    private boolean replicaEnabled;
+
+    // held weakly, so a book dropped from the books cache is not kept for this
+    private final Set<Book> fromReplica = Collections.newSetFromMap(Caffeine.newBuilder().weakKeys().<Book, Boolean>build().asMap());
+
+        @Value("${loans.period}")
+    private Duration loanPeriod;
+
     public Book createBook(Book book) {
-        return this.bookRepository.save(book);
+        // ids come from a sequence, so without the flush a duplicate isbn would only fail when the transaction commits
+        final Book created = this.bookRepository.saveAndFlush(book);
+        this.searchIndex.add(created);
+        this.events.publish(BookEvent.Type.CREATED, created);
+        return created;
     }
 
-    @Cacheable(value="books")
+    /**
+     * Loads on a miss through the cache's loader rather than a put, so filling the cache is never taken for a change.
+     * Like every lookup here it is a read only transaction, which a replica can serve, see ReplicaConfig.
+     */
+    @Cacheable(value="books", sync=true)
+    @Transactional(readOnly = true)
     public Book findBookByISBN(String isbn) {
-        Optional<Book> book = this.bookRepository.findByIsbn(isbn);
+        Optional<Book> book = this.bookRepository.findByIsbn(isbn).map(this::loaded);
+
+        return book.orElseThrow(() -> new BookNotFoundException("Book was not found using isbn : ", isbn));
+    }
+
+    /**
+     * Same lookup as findBookByISBN for calls from inside this class, which never pass through the cache proxy.
+     * The cached instance is the one the inventory changes, so it stays in step with the book row.
+     * Every change to it is put back into the cache, which is what tells other nodes to drop their copy.
+     * Only called by changes, so the book is confirmed against the primary if it came from the replica.
+     */
+    private Book cachedBook(String isbn) {
+        try {
+            // loaded like findBookByISBN's misses, so a flood of borrows of a new book reads it once between them
+            return confirmed(this.cacheManager.getCache("books").get(isbn, () -> findBookByISBN(isbn)));
+        } catch (Cache.ValueRetrievalException ex) {
+            if(ex.getCause() instanceof LibraryException error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Flags a book read by a read only transaction, which may have come from a replica that has not caught up yet.
+     */
+    private Book loaded(Book book) {
+        if(this.replicaEnabled && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            this.fromReplica.add(book);
+        }
+        return book;
+    }
 
-        return book.orElseThrow(() -> new BookNotFoundException("Book was not found using isbn : " + isbn));
+    /**
+     * Sets a flagged book's count from its row before it is first changed, as changes are made to the cached book in
+     * place and would otherwise carry the lag on. Changes run on the primary, and only the first one pays for the read.
+     */
+    private Book confirmed(Book book) {
+        if(this.fromReplica.contains(book)) {
+            synchronized(book) {
+                if(this.fromReplica.contains(book)) {
+                    final Integer copies = this.bookRepository.findAvaliableCopies(book.getIsbn());
+                    if(copies != null) {
+                        book.updateCopies(copies);
+                    }
+                    this.fromReplica.remove(book);
+                }
+            }
+        }
+        return book;
     }
 
-    @CachePut(value="books")
-    public Book borrowBook(String isbn) {
-        final Book book = findBookByISBN(isbn);
+    /**
+     * Takes one copy for the member and opens a loan for it, in one transaction.
+     * While members are waiting on holds for the book, every copy is theirs first.
+     */
+    @Transactional
+    @CachePut(value="books", key="#p0")
+    public Book borrowBook(String isbn, String member) {
+        final Book book = cachedBook(isbn);
 
-        if(book.getAvaliableCopies().get() == 0) {
-            throw new BookNotFoundException("No copies exist to borrow for isbn : " + isbn);
+        // the copy is taken first so that a borrow finding none left has written nothing to roll back,
+        // the loan is only persisted after the conditional update has cleared the persistence context
+        if(this.holds.hasWaiting(isbn) || !this.inventory.borrow(book)) {
+            this.metrics.outOfStock();
+            throw new OutOfStockException(isbn);
         }
+        changedCopies(book, -1);
+        openLoan(isbn, member);
+        this.events.publish(BookEvent.Type.BORROWED, book);
 
-        this.bookRepository.save(book.reduceCopy());
         return book;
     }
 
-    @CachePut(value="books")
-    public Book returnBook(String isbn) {
-        final Book book = findBookByISBN(isbn);
+    /**
+     * Puts one copy back and closes the member's oldest open loan of the book, in one transaction.
+     * A member without an open loan can still return a copy, as books may have been out before loans were kept.
+     * The copy then goes to the longest waiting hold, if any.
+     */
+    @Transactional
+    @CachePut(value="books", key="#p0")
+    public Book returnBook(String isbn, String member) {
+        final Book book = cachedBook(isbn);
 
-        if(book.getAvaliableCopies().get() == book.getTotalAvaliableCopies()) {
-            throw new BookNotFoundException("Return cannot be done as full limit of copies exist for isbn : " + isbn);
+        closeLoan(isbn, member);
+        if(!this.inventory.giveBack(book)) {
+            this.metrics.overReturn();
+            throw new OverReturnException(isbn);
         }
+        changedCopies(book, 1);
+        this.events.publish(BookEvent.Type.RETURNED, book);
 
-        this.bookRepository.save(book.increaseCopy());
+        dispatchHolds(book);
         return book;
     }
 
+    /**
+     * Puts the member in line for a copy of the book, or keeps their place if they are already waiting.
+     * The hold is granted right away when a copy is free and no one is ahead.
+     */
+    @Transactional
+    public Hold placeHold(String isbn, String member) {
+        final Book book = cachedBook(isbn);
+        final Hold hold = this.holds.join(isbn, member);
+
+        // a copy returned just before joining found no one to hand it to
+        dispatchHolds(book);
+        return hold;
+    }
+
+    /**
+     * @return the member's hold on the book, still waiting or granted and not yet collected
+     */
+    public Optional<Hold> findHold(String isbn, String member) {
+        return this.holds.find(isbn, member);
+    }
+
+    /**
+     * Forgets a granted hold once its member has been handed the book.
+     */
+    public void collectHold(Hold hold) {
+        this.holds.collected(hold);
+    }
+
+    /**
+     * @return false if the member was not waiting for the book
+     */
+    public boolean cancelHold(String isbn, String member) {
+        return this.holds.cancel(isbn, member);
+    }
+
+    /**
+     * Hands free copies of the book to waiting holds in the order they were placed, each with a loan opened.
+     * Holds learn of their copy once the transaction commits, and go back to their place in line if it rolls back,
+     * the copy going back with the other copy changes of the transaction.
+     */
+    private void dispatchHolds(Book book) {
+        boolean granted = false;
+        Hold next;
+        while((next = this.holds.next(book.getIsbn())) != null && this.inventory.borrow(book)) {
+            if(!next.claim()) {
+                // cancelled or served by another dispatch since it was looked at
+                this.inventory.giveBack(book);
+                continue;
+            }
+
+            this.holds.granted(next);
+            changedCopies(book, -1);
+            openLoan(book.getIsbn(), next.getMember());
+            this.events.publish(BookEvent.Type.BORROWED, book);
+            grantAfterCommit(next, book);
+            granted = true;
+        }
+
+        if(granted) {
+            this.cacheManager.getCache("books").put(book.getIsbn(), book);
+        }
+    }
+
+    private void grantAfterCommit(Hold hold, Book book) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            hold.grant(book);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if(status == STATUS_COMMITTED) {
+                    hold.grant(book);
+                } else {
+                    Library.this.holds.requeue(hold);
+                }
+            }
+        });
+    }
+
+    /**
+     * Looks up many books at once, reading the cache first and loading every miss with one query.
+     * Isbns that do not exist are left out, the rest come back in the order asked for.
+     */
+    @Transactional(readOnly = true)
+    public List<Book> findBooksByISBN(Collection<String> isbns) {
+        final Cache cache = this.cacheManager.getCache("books");
+        final Map<String, Book> books = new LinkedHashMap<>();
+        final List<String> misses = new ArrayList<>();
+
+        for(String isbn : isbns) {
+            final Book cached = cache.get(isbn, Book.class);
+            books.put(isbn, cached);
+            if(cached == null) {
+                misses.add(isbn);
+            }
+        }
+
+        if(!misses.isEmpty()) {
+            for(Book book : this.bookRepository.findByIsbnIn(misses)) {
+                loaded(book);
+                final Cache.ValueWrapper loaded = cache.putIfAbsent(book.getIsbn(), book);
+                books.put(book.getIsbn(), loaded == null ? book : (Book) loaded.get());
+            }
+        }
+
+        books.values().removeIf(Objects::isNull);
+        return new ArrayList<>(books.values());
+    }
+
+    /**
+     * Borrows one copy for every isbn given, or none at all if any of them is unknown or out of copies.
+     */
+    @Transactional
+    public List<Book> borrowBooks(List<String> isbns, String member) {
+        final Predicate<Book> borrow = book -> !this.holds.hasWaiting(book.getIsbn()) && this.inventory.borrow(book);
+        final List<Book> borrowed = changeCopies(isbns, isbn -> openLoan(isbn, member), -1, borrow, this.inventory::giveBack, this.metrics::outOfStock, OutOfStockException::new);
+        for(Book book : borrowed) {
+            this.events.publish(BookEvent.Type.BORROWED, book);
+        }
+        return borrowed;
+    }
+
+    /**
+     * Returns one copy for every isbn given, or none at all if any of them is unknown or already has all copies in.
+     */
+    @Transactional
+    public List<Book> returnBooks(List<String> isbns, String member) {
+        final List<Book> returned = changeCopies(isbns, isbn -> closeLoan(isbn, member), 1, this.inventory::giveBack, this.inventory::borrow, this.metrics::overReturn, OverReturnException::new);
+        for(Book book : returned) {
+            this.events.publish(BookEvent.Type.RETURNED, book);
+            dispatchHolds(book);
+        }
+        return returned;
+    }
+
+    private List<Book> changeCopies(List<String> isbns, Consumer<String> loan, int copies, Predicate<Book> change, Predicate<Book> undo, Runnable rejected, Function<String, LibraryException> failure) {
+        final Map<String, Book> booksByIsbn = new HashMap<>();
+        for(Book book : findBooksByISBN(isbns)) {
+            booksByIsbn.put(book.getIsbn(), confirmed(book));
+        }
+
+        final List<Book> changed = new ArrayList<>(isbns.size());
+        for(String isbn : isbns) {
+            final Book book = booksByIsbn.get(isbn);
+            LibraryException error = null;
+            if(book == null) {
+                error = new BookNotFoundException("Book was not found using isbn : ", isbn);
+            } else {
+                loan.accept(isbn);
+                if(!change.test(book)) {
+                    rejected.run();
+                    error = failure.apply(isbn);
+                }
+            }
+
+            if(error != null) {
+                // the database changes roll back with the transaction, undoing keeps the in memory counts in step
+                // for the rest of it, an enclosing transaction may carry on
+                for(Book done : changed) {
+                    undo.test(done);
+                    changedCopies(done, -copies);
+                }
+                throw error;
+            }
+            changedCopies(book, copies);
+            changed.add(book);
+        }
+
+        // changed in place like the single book calls, put back so the change reaches the other nodes
+        final Cache books = this.cacheManager.getCache("books");
+        for(Book book : changed) {
+            books.put(book.getIsbn(), book);
+        }
+        return changed;
+    }
+
+    /**
+     * Notes copies taken (negative) or put back (positive) on a book, to be undone if the transaction rolls back.
+     * The inventory then undoes them in memory and the book is dropped from the cache, to be read again from its row.
+     */
+    private void changedCopies(Book book, int copies) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if(synchronization instanceof CopyRollback rollback) {
+                rollback.copies.merge(book, copies, Integer::sum);
+                return;
+            }
+        }
+        final CopyRollback rollback = new CopyRollback();
+        rollback.copies.put(book, copies);
+        TransactionSynchronizationManager.registerSynchronization(rollback);
+    }
+
+    private void openLoan(String isbn, String member) {
+        final Instant now = Instant.now();
+        this.loanRepository.save(new Loan(member, isbn, now, now.plus(this.loanPeriod)));
+    }
+
+    private void closeLoan(String isbn, String member) {
+        this.loanRepository.findFirstByMemberAndIsbnAndReturnedAtIsNullOrderByIdAsc(member, isbn)
+                .ifPresent(loan -> loan.markReturned(Instant.now()));
+    }
+
+    /**
+     * @return at most limit of the books the member has out, oldest loan first
+     */
+    @Transactional(readOnly = true)
+    public List<Loan> findOpenLoans(String member, int limit) {
+        return this.loanRepository.findByMemberAndReturnedAtIsNullOrderByIdAsc(member, Limit.of(limit));
+    }
+
+    /**
+     * Returns at most limit of the member's loans, returned or not, with an id after the given cursor, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public List<Loan> findLoans(String member, Long after, int limit) {
+        return this.loanRepository.findByMemberAndIdGreaterThanOrderByIdAsc(member, after == null ? 0L : after, Limit.of(limit));
+    }
+
+    /**
+     * @return at most limit of the open loans of the book, oldest first
+     */
+    @Transactional(readOnly = true)
+    public List<Loan> findOpenLoansOfBook(String isbn, int limit) {
+        return this.loanRepository.findByIsbnAndReturnedAtIsNullOrderByIdAsc(isbn, Limit.of(limit));
+    }
+
+    /**
+     * @return at most limit of the open loans past their due date, longest overdue first
+     */
+    @Transactional(readOnly = true)
+    public List<Loan> findOverdueLoans(int limit) {
+        return this.loanRepository.findOverdue(Instant.now(), Limit.of(limit));
+    }
+
+    /**
+     * Returns at most k books whose title and author words start with the words of the query, best match first.
+     */
+    @Transactional(readOnly = true)
+    public List<Book> searchBooks(String query, int k) {
+        return findBooksByISBN(this.searchIndex.search(query, k));
+    }
+
     @CacheEvict(value="books")
     public void removeBook(String isbn) {
-        this.bookRepository.delete(findBookByISBN(isbn));
+        final Book book = cachedBook(isbn);
+        this.bookRepository.delete(book);
+        this.events.publish(BookEvent.Type.REMOVED, book);
+        this.inventory.forget(isbn);
+        this.searchIndex.remove(isbn);
+        for(Hold hold : this.holds.forget(isbn)) {
+            hold.granted().completeExceptionally(new BookNotFoundException("Book was removed while on hold, isbn : ", isbn));
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<Book> findBooksByAuthor(String author) {
         List<Book> books = this.bookRepository.findByAuthor(author);
 
         if(books.isEmpty()) {
-            throw new BookNotFoundException("Books were not found for author : " + author);
+            throw new BookNotFoundException("Books were not found for author : ", author);
         }
 
         return books;
     }
+
+    /**
+     * Returns at most limit books of the author with an id after the given cursor, ordered by id.
+     * Only the first page, with no cursor, errors when the author has no books.
+     */
+    @Transactional(readOnly = true)
+    public List<Book> findBooksByAuthor(String author, Long after, int limit) {
+        List<Book> books = this.bookRepository.findByAuthorAndIdGreaterThanOrderByIdAsc(author, after == null ? 0L : after, Limit.of(limit));
+
+        if(books.isEmpty() && after == null) {
+            throw new BookNotFoundException("Books were not found for author : ", author);
+        }
+
+        return books;
+    }
+
+    /**
+     * One per transaction, holding the copies it changed on each book instance.
+     */
+    private final class CopyRollback implements TransactionSynchronization {
+
+        private final Map<Book, Integer> copies = new IdentityHashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            if(status == STATUS_COMMITTED) {
+                return;
+            }
+
+            final Cache books = Library.this.cacheManager.getCache("books");
+            this.copies.forEach((book, copies) -> {
+                // an unknown outcome may have committed, so only the cache, which reloads from the row, is dropped
+                if(status == STATUS_ROLLED_BACK && copies != 0) {
+                    Library.this.inventory.rolledBack(book, copies);
+                }
+                books.evict(book.getIsbn());
+            });
+        }
+    }
 }
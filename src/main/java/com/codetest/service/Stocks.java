@@ -0,0 +1,106 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copy counts held in memory keyed by isbn, for the inventories that own the counts instead of the database.
+ * Copies are reserved and released with compare and set so a count can never drop below zero or go over the total.
+ */
+class Stocks {
+
+    private final ConcurrentMap<String, Stock> stocks = new ConcurrentHashMap<>();
+
+    Stock of(Book book) {
+        final Stock stock = this.stocks.get(book.getIsbn());
+        if(stock != null && Objects.equals(stock.bookId, book.getId())) {
+            return stock;
+        }
+
+        // a book removed and created again under the same isbn gets a new id, and so a fresh stock
+        return this.stocks.compute(book.getIsbn(), (isbn, existing) ->
+                existing != null && Objects.equals(existing.bookId, book.getId()) ? existing : new Stock(book));
+    }
+
+    Stock get(String isbn) {
+        return this.stocks.get(isbn);
+    }
+
+    /**
+     * Takes back copies put, or puts back copies taken, by changes that did not go through.
+     *
+     * @return false if the book has no stock, or a new one since the changes
+     */
+    boolean undo(Book book, int copies) {
+        final Stock stock = this.stocks.get(book.getIsbn());
+        if(stock == null || !Objects.equals(stock.bookId, book.getId())) {
+            return false;
+        }
+
+        for(int i = 0; i < Math.abs(copies); i++) {
+            if(copies < 0) {
+                stock.put();
+            } else {
+                stock.take();
+            }
+        }
+        return true;
+    }
+
+    void remove(String isbn) {
+        this.stocks.remove(isbn);
+    }
+
+    static final class Stock {
+
+        private final Long bookId;
+
+        private final int total;
+
+        private final AtomicInteger available;
+
+        private Stock(Book book) {
+            this.bookId = book.getId();
+            this.total = book.getTotalAvaliableCopies();
+            this.available = new AtomicInteger(book.getAvaliableCopies().get());
+        }
+
+        int available() {
+            return this.available.get();
+        }
+
+        /**
+         * @return the copies left after taking one, or -1 if there were none
+         */
+        int take() {
+            int copies;
+            do {
+                copies = this.available.get();
+                if(copies <= 0) {
+                    return -1;
+                }
+            } while(!this.available.compareAndSet(copies, copies - 1));
+
+            return copies - 1;
+        }
+
+        /**
+         * @return the copies available after putting one back, or -1 if all of them already were
+         */
+        int put() {
+            int copies;
+            do {
+                copies = this.available.get();
+                if(copies >= this.total) {
+                    return -1;
+                }
+            } while(!this.available.compareAndSet(copies, copies + 1));
+
+            return copies + 1;
+        }
+    }
+}
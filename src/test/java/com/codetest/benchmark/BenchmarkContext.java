@@ -0,0 +1,57 @@
+package com.codetest.benchmark;
+
+import com.codetest.Application;
+import com.codetest.model.Book;
+import com.codetest.service.BookImporter;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.stream.IntStream;
+
+/**
+ * Starts the application for benchmarks, every context gets its own in memory database.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starts the application without a web server, for benchmarks that call the service directly.
+     *
+     * @param properties passed as command line arguments, so they win over application.properties
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        final String[] args = new String[properties.length];
+        for(int i = 0; i < properties.length; i++) {
+            args[i] = "--" + properties[i];
+        }
+
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args);
+    }
+
+    /**
+     * Starts the application with its web server on a free port, see local.server.port.
+     */
+    static ConfigurableApplicationContext startServer(String... properties) {
+        final String[] args = new String[properties.length + 1];
+        for(int i = 0; i < properties.length; i++) {
+            args[i] = "--" + properties[i];
+        }
+        args[properties.length] = "--server.port=0";
+
+        return new SpringApplicationBuilder(Application.class)
+                .logStartupInfo(false)
+                .run(args);
+    }
+
+    static void importBooks(ConfigurableApplicationContext context, String isbnPrefix, String author, int count, int copies) {
+        context.getBean(BookImporter.class).importBooks(IntStream.range(0, count)
+                .mapToObj(i -> new Book(isbnPrefix + i, "Benchmark title " + i, author, 2024, copies))
+                .iterator());
+    }
+}
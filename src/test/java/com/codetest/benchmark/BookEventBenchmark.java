@@ -0,0 +1,98 @@
+package com.codetest.benchmark;
+
+import com.codetest.model.Book;
+import com.codetest.service.BookEvents;
+import com.codetest.service.Library;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Borrow and return with thousands of subscribers on the book event stream. The events are handed out on the
+ * fan out thread, so a checkout only pays for queueing them whatever the number of subscribers.
+ * The eventsPerSubscriber counter, against the two events of every borrowAndReturn, shows whether the subscribers
+ * kept up with the fan out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookEventBenchmark {
+
+    @Param({"0", "1000", "10000"})
+    public int subscribers;
+
+    private ConfigurableApplicationContext context;
+
+    private Library library;
+
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    private final LongAdder received = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void start() {
+        this.context = BenchmarkContext.start();
+        this.library = this.context.getBean(Library.class);
+        this.library.createBook(new Book("eventIsbn", "Benchmark title", "eventAuthor", 2024, 1_000_000));
+
+        final BookEvents events = this.context.getBean(BookEvents.class);
+        for(int i = 0; i < this.subscribers; i++) {
+            this.subscriptions.add(events.stream(null).subscribe(event -> this.received.increment()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        this.subscriptions.forEach(Disposable::dispose);
+        this.context.close();
+    }
+
+    @Benchmark
+    public Book borrowAndReturn(Received received) {
+        this.library.borrowBook("eventIsbn", "eventMember");
+        return this.library.returnBook("eventIsbn", "eventMember");
+    }
+
+    /**
+     * Events each subscriber was handed in the iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Received {
+
+        private BookEventBenchmark benchmark;
+
+        private long before;
+
+        @Setup(Level.Iteration)
+        public void start(BookEventBenchmark benchmark) {
+            this.benchmark = benchmark;
+            this.before = benchmark.received.sum();
+        }
+
+        public long eventsPerSubscriber() {
+            return this.benchmark.subscribers == 0 ? 0 : (this.benchmark.received.sum() - this.before) / this.benchmark.subscribers;
+        }
+    }
+}
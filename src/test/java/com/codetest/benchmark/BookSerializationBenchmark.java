@@ -0,0 +1,76 @@
+package com.codetest.benchmark;
+
+import com.codetest.controller.BookJson;
+import com.codetest.model.Book;
+import com.codetest.model.BookView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading a Book as json with a plain object mapper, against writing the BookView read model
+ * the controller sends and the precomputed bytes /books/isbn/{isbn} answers with. Run with -prof gc for allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Book book;
+
+    private byte[] json;
+
+    private BookJson bookJson;
+
+    private BookJson precomputedBookJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.objectMapper = new ObjectMapper();
+        this.book = new Book("BOOK001", "First book", "jatin", 2024, 10);
+        this.json = this.objectMapper.writeValueAsBytes(this.book);
+        this.bookJson = new BookJson(this.objectMapper, false);
+        this.precomputedBookJson = new BookJson(this.objectMapper, true);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws IOException {
+        return this.objectMapper.writeValueAsBytes(this.book);
+    }
+
+    @Benchmark
+    public byte[] serializeBookView() throws IOException {
+        return this.objectMapper.writeValueAsBytes(BookView.of(this.book));
+    }
+
+    @Benchmark
+    public byte[] renderBookJson() {
+        return this.bookJson.bytes(this.book);
+    }
+
+    @Benchmark
+    public byte[] precomputedBookJson() {
+        return this.precomputedBookJson.bytes(this.book);
+    }
+
+    @Benchmark
+    public Book deserializeBook() throws IOException {
+        return this.objectMapper.readValue(this.json, Book.class);
+    }
+}
@@ -0,0 +1,102 @@
+package com.codetest.benchmark;
+
+import com.codetest.exception.OutOfStockException;
+import com.codetest.service.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what turning down a borrow costs, run with -prof gc to see the bytes allocated per operation.
+ * The exception benchmarks throw from as deep a stack as a borrow through the Spring proxies has,
+ * comparing an exception with a stack trace and a built message to the stackless one Library throws.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class OutOfStock {
+
+        @Param({"database", "memory"})
+        public String inventoryMode;
+
+        ConfigurableApplicationContext context;
+
+        Library library;
+
+        @Setup(Level.Trial)
+        public void start() {
+            this.context = BenchmarkContext.start("inventory.mode=" + this.inventoryMode);
+            this.library = this.context.getBean(Library.class);
+            BenchmarkContext.importBooks(this.context, "emptyIsbn", "emptyAuthor", 1, 0);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Stack {
+
+        @Param({"100"})
+        public int depth;
+
+        String isbn = "emptyIsbn0";
+    }
+
+    @Benchmark
+    public Object borrowOutOfStock(OutOfStock outOfStock) {
+        try {
+            return outOfStock.library.borrowBook("emptyIsbn0", "benchmarkMember");
+        } catch (OutOfStockException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Object throwWithStackTrace(Stack stack) {
+        try {
+            return throwAt(stack.depth, stack.isbn, true);
+        } catch (RuntimeException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Object throwStackless(Stack stack) {
+        try {
+            return throwAt(stack.depth, stack.isbn, false);
+        } catch (RuntimeException ex) {
+            return ex;
+        }
+    }
+
+    private static Object throwAt(int depth, String isbn, boolean stackTrace) {
+        if(depth > 0) {
+            return throwAt(depth - 1, isbn, stackTrace);
+        }
+        if(stackTrace) {
+            throw new RuntimeException("No copies exist to borrow for isbn : " + isbn);
+        }
+        throw new OutOfStockException(isbn);
+    }
+}
@@ -0,0 +1,96 @@
+package com.codetest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test over http comparing requests served on the platform thread pool with requests served on virtual threads.
+ * Many more clients than tomcat has threads borrow and return books, throughput and the sampled latency
+ * percentiles (p99 included) are reported per thread mode. The virtual mode needs java 21 or later.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+    private static final int BOOKS = 100;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"platform", "virtual"})
+        public String threads;
+
+        ConfigurableApplicationContext context;
+
+        HttpClient client;
+
+        String baseUrl;
+
+        @Setup(Level.Trial)
+        public void start() {
+            final boolean virtual = this.threads.equals("virtual");
+            if(virtual && Runtime.version().feature() < 21) {
+                throw new IllegalStateException("Virtual threads need java 21 or later, running on " + Runtime.version());
+            }
+
+            this.context = BenchmarkContext.startServer("spring.threads.virtual.enabled=" + virtual);
+            BenchmarkContext.importBooks(this.context, "loadIsbn", "loadAuthor", BOOKS, 1_000_000);
+            this.baseUrl = "http://localhost:" + this.context.getEnvironment().getProperty("local.server.port") + "/books";
+            this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private int next;
+
+        String isbn() {
+            this.next = (this.next + 1) % BOOKS;
+            return "loadIsbn" + this.next;
+        }
+    }
+
+    @Benchmark
+    public int borrowAndReturn(Server server, Client client) throws IOException, InterruptedException {
+        final String isbn = client.isbn();
+        send(server, "/borrow/isbn/" + isbn);
+        return send(server, "/return/isbn/" + isbn);
+    }
+
+    private static int send(Server server, String path) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl + path))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return server.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,170 @@
+package com.codetest.benchmark;
+
+import com.codetest.model.Book;
+import com.codetest.service.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Library service against a real context and in memory database.
+ * Borrow and return run with one thread and with as many threads as there are cores, pass -t to try other counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryBenchmark {
+
+    private static final int LOOKUP_BOOKS = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class Lookup {
+
+        ConfigurableApplicationContext context;
+
+        Library library;
+
+        Cache books;
+
+        String[] isbns;
+
+        @Setup(Level.Trial)
+        public void start() {
+            this.context = BenchmarkContext.start();
+            this.library = this.context.getBean(Library.class);
+            this.books = this.context.getBean(CacheManager.class).getCache("books");
+
+            BenchmarkContext.importBooks(this.context, "lookupIsbn", "lookupAuthor", LOOKUP_BOOKS, 10);
+            this.isbns = new String[LOOKUP_BOOKS];
+            for(int i = 0; i < LOOKUP_BOOKS; i++) {
+                this.isbns[i] = "lookupIsbn" + i;
+                this.library.findBookByISBN(this.isbns[i]);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        String next(String[] isbns) {
+            this.next = (this.next + 1) % isbns.length;
+            return isbns[this.next];
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Borrowing {
+
+        // journal modes carry the durability after the colon
+        @Param({"database", "memory", "journal:sync", "journal:group", "journal:async"})
+        public String inventoryMode;
+
+        ConfigurableApplicationContext context;
+
+        Library library;
+
+        @Setup(Level.Trial)
+        public void start() {
+            final String[] mode = this.inventoryMode.split(":");
+            this.context = mode.length == 1
+                    ? BenchmarkContext.start("inventory.mode=" + mode[0])
+                    : BenchmarkContext.start("inventory.mode=" + mode[0], "inventory.journal.durability=" + mode[1]);
+            this.library = this.context.getBean(Library.class);
+            BenchmarkContext.importBooks(this.context, "popularIsbn", "popularAuthor", 1, 1_000_000);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ByAuthor {
+
+        @Param({"10", "100", "1000"})
+        public int booksByAuthor;
+
+        ConfigurableApplicationContext context;
+
+        Library library;
+
+        @Setup(Level.Trial)
+        public void start() {
+            this.context = BenchmarkContext.start();
+            this.library = this.context.getBean(Library.class);
+            BenchmarkContext.importBooks(this.context, "authorIsbn", "prolificAuthor", this.booksByAuthor, 1);
+            BenchmarkContext.importBooks(this.context, "otherIsbn", "otherAuthor", 10_000, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.context.close();
+        }
+    }
+
+    @Benchmark
+    public Book findBookByISBNWarm(Lookup lookup, Cursor cursor) {
+        return lookup.library.findBookByISBN(cursor.next(lookup.isbns));
+    }
+
+    /**
+     * Evicts the book right before looking it up, the eviction itself is a small part of the measured time.
+     */
+    @Benchmark
+    public Book findBookByISBNCold(Lookup lookup, Cursor cursor) {
+        final String isbn = cursor.next(lookup.isbns);
+        lookup.books.evict(isbn);
+        return lookup.library.findBookByISBN(isbn);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Book borrowAndReturnUncontended(Borrowing borrowing) {
+        borrowing.library.borrowBook("popularIsbn0", "benchmarkMember");
+        return borrowing.library.returnBook("popularIsbn0", "benchmarkMember");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Book borrowAndReturnContended(Borrowing borrowing) {
+        borrowing.library.borrowBook("popularIsbn0", "benchmarkMember");
+        return borrowing.library.returnBook("popularIsbn0", "benchmarkMember");
+    }
+
+    @Benchmark
+    public List<Book> findBooksByAuthor(ByAuthor byAuthor) {
+        return byAuthor.library.findBooksByAuthor("prolificAuthor");
+    }
+
+    @Benchmark
+    public List<Book> findFirstPageOfBooksByAuthor(ByAuthor byAuthor) {
+        return byAuthor.library.findBooksByAuthor("prolificAuthor", null, 100);
+    }
+}
@@ -0,0 +1,101 @@
+package com.codetest.benchmark;
+
+import com.codetest.model.Loan;
+import com.codetest.service.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the member and overdue loan queries over a large loan history. One loan in twenty is still out,
+ * and one open loan in five is overdue. Pass -p loans=20000000 for a history of tens of millions, given the heap for it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LoanBenchmark {
+
+    private static final int LOANS_PER_MEMBER = 50;
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param({"1000000"})
+    public int loans;
+
+    private ConfigurableApplicationContext context;
+
+    private Library library;
+
+    private int members;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        this.context = BenchmarkContext.start();
+        this.library = this.context.getBean(Library.class);
+        this.members = Math.max(1, this.loans / LOANS_PER_MEMBER);
+
+        final JdbcTemplate jdbcTemplate = this.context.getBean(JdbcTemplate.class);
+        final Instant now = Instant.now();
+        final List<Object[]> rows = new ArrayList<>(INSERT_BATCH_SIZE);
+        for(int i = 1; i <= this.loans; i++) {
+            final boolean open = i % 20 == 0;
+            final boolean overdue = open && i % 100 == 0;
+            final Instant borrowedAt = now.minus(Duration.ofDays(overdue ? 30 : open ? 1 : 60)).plusMillis(i);
+            rows.add(new Object[] {i, "member" + (i % this.members), "isbn" + (i % 10_000), Timestamp.from(borrowedAt),
+                    Timestamp.from(borrowedAt.plus(Duration.ofDays(14))), open ? null : Timestamp.from(borrowedAt.plus(Duration.ofDays(7)))});
+            if(rows.size() == INSERT_BATCH_SIZE || i == this.loans) {
+                jdbcTemplate.batchUpdate("insert into loan (id, member, isbn, borrowed_at, due_at, returned_at) values (?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        this.context.close();
+    }
+
+    private String nextMember() {
+        this.next = (this.next + 7919) % this.members;
+        return "member" + this.next;
+    }
+
+    @Benchmark
+    public List<Loan> findOpenLoans() {
+        return this.library.findOpenLoans(nextMember(), 100);
+    }
+
+    @Benchmark
+    public List<Loan> findLoanHistory() {
+        return this.library.findLoans(nextMember(), null, 100);
+    }
+
+    @Benchmark
+    public List<Loan> findOverdueLoans() {
+        return this.library.findOverdueLoans(100);
+    }
+}
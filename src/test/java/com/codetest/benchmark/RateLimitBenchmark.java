@@ -0,0 +1,77 @@
+package com.codetest.benchmark;
+
+import com.codetest.config.RateLimitFilter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time the rate limit filter adds to a request, with every thread on one user's bucket
+ * or spread over many users. The limits are high enough that no request is turned down.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final FilterChain PASS = (request, response) -> { };
+
+    @State(Scope.Benchmark)
+    public static class Limiter {
+
+        @Param({"1", "1000"})
+        public int users;
+
+        RateLimitFilter filter;
+
+        @Setup
+        public void setUp() {
+            final RateLimitFilter.Limit unlimited = new RateLimitFilter.Limit(1_000_000_000, 1_000_000_000);
+            this.filter = new RateLimitFilter(unlimited, unlimited, 10_000);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+
+        final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/books/borrow/isbn/BOOK001");
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        @Setup
+        public void setUp(Limiter limiter) {
+            final String user = "user" + ThreadLocalRandom.current().nextInt(limiter.users);
+            SecurityContextHolder.getContext().setAuthentication(
+                    UsernamePasswordAuthenticationToken.authenticated(user, null, AuthorityUtils.createAuthorityList("ROLE_read")));
+        }
+    }
+
+    @Benchmark
+    public int filter(Limiter limiter, Request request) throws Exception {
+        // the once per request marker is cleared so every call goes through the limit again
+        request.request.clearAttributes();
+        limiter.filter.doFilter(request.request, request.response, PASS);
+        return request.response.getStatus();
+    }
+}
@@ -0,0 +1,110 @@
+package com.codetest.benchmark;
+
+import com.codetest.model.Book;
+import com.codetest.service.BookImporter;
+import com.codetest.service.Library;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Load test of borrow and return latency while a flood of readers pages through authors' books.
+ * Both pools are kept small so that, on one shared pool, the checkouts queue behind the readers for a connection.
+ * With the replica the reads have a pool of their own and the sampled write latency stays close to an idle system's.
+ * The replica is a second in memory database filled from a script of the primary once the books are in.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Group)
+public class ReplicaLoadBenchmark {
+
+    private static final int AUTHORS = 200;
+
+    private static final int BOOKS_PER_AUTHOR = 100;
+
+    private static final int POOL_SIZE = 4;
+
+    @Param({"false", "true"})
+    public boolean replica;
+
+    private ConfigurableApplicationContext context;
+
+    private Library library;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        this.context = BenchmarkContext.start(
+                "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "datasource.replica.enabled=" + this.replica,
+                "datasource.replica.url=jdbc:h2:mem:replicaLoadBenchmark",
+                "datasource.replica.hikari.maximum-pool-size=" + POOL_SIZE);
+        this.library = this.context.getBean(Library.class);
+        this.context.getBean(BookImporter.class).importBooks(IntStream.range(0, AUTHORS * BOOKS_PER_AUTHOR)
+                .mapToObj(i -> new Book("replicaIsbn" + i, "Benchmark title " + i, "replicaAuthor" + (i % AUTHORS), 2024, 1_000_000))
+                .iterator());
+
+        if(this.replica) {
+            final Path script = Files.createTempFile("primary", ".sql");
+            new JdbcTemplate(this.context.getBean("primaryDataSource", DataSource.class)).execute("script to '" + script + "'");
+            new JdbcTemplate(this.context.getBean("replicaDataSource", DataSource.class)).execute("runscript from '" + script + "'");
+            Files.delete(script);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        this.context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int bound) {
+            this.next = (this.next + 7) % bound;
+            return this.next;
+        }
+    }
+
+    @Benchmark
+    @Group("flood")
+    @GroupThreads(16)
+    public List<Book> browse(Cursor cursor) {
+        return this.library.findBooksByAuthor("replicaAuthor" + cursor.next(AUTHORS), null, BOOKS_PER_AUTHOR);
+    }
+
+    @Benchmark
+    @Group("flood")
+    @GroupThreads(1)
+    public Book checkout(Cursor cursor) {
+        final String isbn = "replicaIsbn" + cursor.next(AUTHORS * BOOKS_PER_AUTHOR);
+        this.library.borrowBook(isbn, "replicaMember");
+        return this.library.returnBook(isbn, "replicaMember");
+    }
+}
@@ -0,0 +1,51 @@
+package com.codetest.benchmark;
+
+import com.codetest.model.Book;
+import com.codetest.search.BookSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a top 10 search of the in memory index over a large catalogue, with one rare and two common words.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final String[] WORDS = {"river", "stone", "winter", "garden", "shadow", "empire", "silver", "night", "ocean", "crown"};
+
+    @Param({"200000"})
+    public int books;
+
+    private BookSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        this.index = new BookSearchIndex();
+        for(int i = 0; i < this.books; i++) {
+            this.index.add(new Book("isbn" + i, WORDS[i % 10] + " " + WORDS[(i / 10) % 10] + " volume " + i,
+                    "author" + (i % 5_000), 2000, 1));
+        }
+    }
+
+    @Benchmark
+    public List<String> search() {
+        return this.index.search("silver gard author12", 10);
+    }
+}
@@ -0,0 +1,77 @@
+package com.codetest.benchmark;
+
+import com.codetest.model.Book;
+import com.codetest.service.CatalogueSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how long a node takes from start until it is ready to serve a catalogue of a million books,
+ * seeded from the catalogue snapshot (mapped or read onto the heap) or reseeded through the importer as before.
+ * Every measurement starts a fresh context with an empty in memory database.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final int BOOKS = 1_000_000;
+
+    @Param({"snapshot:mapped", "snapshot:heap", "import"})
+    public String seed;
+
+    private Path snapshot;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        this.snapshot = Files.createTempFile("catalogue", ".snapshot");
+        CatalogueSnapshot.write(this.snapshot, IntStream.range(0, BOOKS)
+                .mapToObj(i -> new Book("startupIsbn" + i, "Benchmark title " + i, "startupAuthor" + (i % 10_000), 2024, 3))
+                .iterator());
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        this.context.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(this.snapshot);
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext startUntilReady() {
+        if(this.seed.equals("import")) {
+            this.context = BenchmarkContext.start();
+            BenchmarkContext.importBooks(this.context, "startupIsbn", "startupAuthor", BOOKS, 3);
+        } else {
+            this.context = BenchmarkContext.start("catalogue.snapshot.path=" + this.snapshot,
+                    "catalogue.snapshot.mapped=" + this.seed.endsWith("mapped"));
+        }
+        return this.context;
+    }
+}
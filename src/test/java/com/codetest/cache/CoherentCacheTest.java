@@ -0,0 +1,94 @@
+package com.codetest.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CoherentCacheTest {
+
+    private final LoopbackTransport transport = new LoopbackTransport();
+
+    private final CoherentCache first = new CoherentCache(new ConcurrentMapCache("testBooks"), this.transport, "first");
+
+    private final CoherentCache second = new CoherentCache(new ConcurrentMapCache("testBooks"), this.transport, "second");
+
+    @AfterEach
+    public void close() {
+        this.transport.close();
+    }
+
+    @Test
+    public void assertPutDropsOtherNodesCopy() {
+        this.first.putIfAbsent("testIsbn", "loaded");
+        this.second.get("testIsbn", () -> "loaded");
+
+        this.first.put("testIsbn", "borrowed");
+
+        assertEquals("borrowed", this.first.get("testIsbn", String.class));
+        assertNull(this.second.get("testIsbn"));
+    }
+
+    @Test
+    public void assertLoadsStayLocal() {
+        this.first.putIfAbsent("testIsbn", "loaded");
+        this.second.putIfAbsent("testIsbn", "loaded");
+        this.second.get("otherIsbn", () -> "loaded");
+
+        assertNotNull(this.first.get("testIsbn"));
+        assertNotNull(this.second.get("testIsbn"));
+    }
+
+    @Test
+    public void assertEvictAndClearReachOtherNodes() {
+        this.second.putIfAbsent("testIsbn", "loaded");
+        this.second.putIfAbsent("otherIsbn", "loaded");
+
+        this.first.evict("testIsbn");
+        assertNull(this.second.get("testIsbn"));
+        assertNotNull(this.second.get("otherIsbn"));
+
+        this.first.clear();
+        assertNull(this.second.get("otherIsbn"));
+    }
+
+    @Test
+    public void assertLoadStartedBeforeAnInvalidationIsNotCached() {
+        // second read the book, then first's change arrives before second puts what it read
+        this.first.put("testIsbn", "borrowed");
+        assertNull(this.second.putIfAbsent("testIsbn", "loaded"));
+        assertNull(this.second.get("testIsbn"));
+
+        this.first.clear();
+        this.second.putIfAbsent("otherIsbn", "loaded");
+        assertNull(this.second.get("otherIsbn"));
+
+        // the node that made the change keeps filling its own cache
+        this.first.putIfAbsent("otherIsbn", "loaded");
+        assertNotNull(this.first.get("otherIsbn"));
+    }
+
+    @Test
+    public void assertInvalidationWaitsForCommit() {
+        this.second.putIfAbsent("testIsbn", "loaded");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.first.put("testIsbn", "borrowed");
+            assertNotNull(this.second.get("testIsbn"));
+
+            for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(this.second.get("testIsbn"));
+    }
+}
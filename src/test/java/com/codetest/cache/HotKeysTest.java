@@ -0,0 +1,75 @@
+package com.codetest.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotKeysTest {
+
+    private final HotKeys hotKeys = new HotKeys(2, 1024, 1);
+
+    private final List<Object> changes = new ArrayList<>();
+
+    {
+        this.hotKeys.onChange(this.changes::add);
+    }
+
+    private void record(String key, int times) {
+        for(int i = 0; i < times; i++) {
+            this.hotKeys.record(key);
+        }
+    }
+
+    @Test
+    public void assertHottestKeysAreKept() {
+        record("warm", 5);
+        record("hot", 10);
+        record("hotter", 20);
+
+        assertEquals(List.of("hotter", "hot"), List.copyOf(this.hotKeys.hottest().keySet()));
+        assertEquals(20L, this.hotKeys.hottest().get("hotter"));
+        assertFalse(this.hotKeys.isHot("warm"));
+        assertEquals(List.of("warm", "hot", "warm", "hotter"), this.changes);
+    }
+
+    @Test
+    public void assertColdKeysDoNotDisplaceHotOnes() {
+        record("hot", 10);
+        record("hotter", 20);
+        for(int i = 0; i < 100; i++) {
+            record("cold" + i, 1);
+        }
+
+        assertEquals(Map.of("hot", 10L, "hotter", 20L), this.hotKeys.hottest());
+    }
+
+    @Test
+    public void assertDecayCoolsKeysDown() {
+        record("hot", 4);
+        record("brief", 1);
+
+        this.hotKeys.decay();
+
+        assertTrue(this.hotKeys.isHot("hot"));
+        assertEquals(2L, this.hotKeys.hottest().get("hot"));
+        assertFalse(this.hotKeys.isHot("brief"));
+        assertEquals("brief", this.changes.get(this.changes.size() - 1));
+    }
+
+    @Test
+    public void assertSampledCountsAreScaledBack() {
+        final HotKeys sampled = new HotKeys(2, 1024, 4);
+        for(int i = 0; i < 40_000; i++) {
+            sampled.record("hot");
+        }
+
+        final long lookups = sampled.hottest().get("hot");
+        assertTrue(lookups > 36_000 && lookups < 44_000, "estimated " + lookups);
+    }
+}
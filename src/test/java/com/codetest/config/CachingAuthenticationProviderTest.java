@@ -0,0 +1,74 @@
+package com.codetest.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachingAuthenticationProviderTest {
+
+    private final AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+
+    private final CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, new ConcurrentMapCache("authentications"));
+
+    @Test
+    public void assertRepeatCredentialsAreCheckedOnce() {
+        final Authentication authenticated = authenticated("user");
+        when(delegate.authenticate(any())).thenReturn(authenticated);
+
+        assertSame(authenticated, provider.authenticate(login("user", "lowsecure")));
+        assertSame(authenticated, provider.authenticate(login("user", "lowsecure")));
+
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    public void assertOtherPasswordIsCheckedAgain() {
+        when(delegate.authenticate(any())).thenReturn(authenticated("user"));
+        provider.authenticate(login("user", "lowsecure"));
+
+        when(delegate.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("user", "guessed")));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    public void assertFailedChecksAreNotCached() {
+        when(delegate.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("user", "guessed")));
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("user", "guessed")));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    public void assertKeysAreNotSharedBetweenProcesses() {
+        // each provider stands in for a process, with its own random key, so one's entries mean nothing to the other
+        final Cache shared = new ConcurrentMapCache("authentications");
+        when(delegate.authenticate(any())).thenReturn(authenticated("user"));
+
+        new CachingAuthenticationProvider(delegate, shared).authenticate(login("user", "lowsecure"));
+        new CachingAuthenticationProvider(delegate, shared).authenticate(login("user", "lowsecure"));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    private static Authentication login(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+
+    private static Authentication authenticated(String username) {
+        return UsernamePasswordAuthenticationToken.authenticated(username, null, AuthorityUtils.createAuthorityList("ROLE_read"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.codetest.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GatedDataSourceTest {
+
+    @Test
+    public void assertConnectionsBeyondThePermitsTimeOut() throws Exception {
+        final DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+        final GatedDataSource gated = new GatedDataSource(dataSource, 1, Duration.ofMillis(50));
+
+        final Connection connection = gated.getConnection();
+
+        assertEquals(0, gated.availablePermits());
+        assertThrows(SQLTransientConnectionException.class, gated::getConnection);
+    }
+
+    @Test
+    public void assertClosingHandsThePermitBackOnce() throws Exception {
+        final DataSource dataSource = mock(DataSource.class);
+        final Connection raw = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(raw);
+        final GatedDataSource gated = new GatedDataSource(dataSource, 2, Duration.ofMillis(50));
+
+        final Connection connection = gated.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(2, gated.availablePermits());
+        verify(raw, times(2)).close();
+    }
+
+    @Test
+    public void assertFailedConnectionHandsThePermitBack() throws Exception {
+        final DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+        final GatedDataSource gated = new GatedDataSource(dataSource, 1, Duration.ofMillis(50));
+
+        assertThrows(SQLTransientConnectionException.class, gated::getConnection);
+
+        assertEquals(1, gated.availablePermits());
+    }
+}
@@ -0,0 +1,120 @@
+package com.codetest.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimitFilterTest {
+
+    private final RateLimitFilter filter = new RateLimitFilter(new RateLimitFilter.Limit(1, 2), new RateLimitFilter.Limit(1, 4), 2);
+
+    @AfterEach
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void assertBucketRefillsAtItsRate() {
+        final TokenBucket bucket = new TokenBucket(10, 2);
+        final long now = System.nanoTime();
+
+        assertEquals(0, bucket.tryTake(now));
+        assertEquals(0, bucket.tryTake(now));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryTake(now));
+        assertEquals(0, bucket.tryTake(now + TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+
+    @Test
+    public void assertRequestsOverTheBurstAreRejected() throws Exception {
+        authenticate("user", "ROLE_read");
+
+        assertEquals(200, status("GET"));
+        assertEquals(200, status("GET"));
+        final MockHttpServletResponse rejected = send("GET");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void assertReadsAndWritesHaveSeparateBuckets() throws Exception {
+        authenticate("user", "ROLE_read");
+
+        assertEquals(200, status("PUT"));
+        assertEquals(200, status("PUT"));
+        assertEquals(429, status("PUT"));
+        assertEquals(200, status("GET"));
+    }
+
+    @Test
+    public void assertWriteRoleGetsTheWriteLimit() throws Exception {
+        authenticate("admin", "ROLE_read", "ROLE_write");
+
+        for(int i = 0; i < 4; i++) {
+            assertEquals(200, status("GET"));
+        }
+        assertEquals(429, status("GET"));
+    }
+
+    @Test
+    public void assertUsersHaveTheirOwnBuckets() throws Exception {
+        authenticate("user", "ROLE_read");
+        status("GET");
+        status("GET");
+        assertEquals(429, status("GET"));
+
+        authenticate("other", "ROLE_read");
+        assertEquals(200, status("GET"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void assertUsersAreForgottenOnceTheirBucketsAreFull() throws Exception {
+        final RateLimitFilter filter = new RateLimitFilter(new RateLimitFilter.Limit(1000, 2), new RateLimitFilter.Limit(1000, 4), 2);
+        final Cache<String, ?> buckets = (Cache<String, ?>) ReflectionTestUtils.getField(filter, "buckets");
+        authenticate("user", "ROLE_read");
+        filter.doFilter(new MockHttpServletRequest("GET", "/books/isbn/testIsbn"), new MockHttpServletResponse(), new MockFilterChain());
+        assertEquals(1, buckets.estimatedSize());
+
+        // the larger bucket is full again after 4ms
+        Thread.sleep(20);
+        buckets.cleanUp();
+        assertEquals(0, buckets.estimatedSize());
+    }
+
+    @Test
+    public void assertAnonymousRequestsAreLeftToAuthorization() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            assertEquals(200, status("GET"));
+        }
+    }
+
+    private void authenticate(String name, String... roles) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(name, null, AuthorityUtils.createAuthorityList(roles)));
+    }
+
+    private int status(String method) throws Exception {
+        return send(method).getStatus();
+    }
+
+    private MockHttpServletResponse send(String method) throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest(method, "/books/isbn/testIsbn"), response, chain);
+        assertTrue(response.getStatus() == 429 || chain.getRequest() != null);
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+package com.codetest.config;
+
+import com.codetest.model.Book;
+import com.codetest.service.Library;
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@SpringBootTest(properties = {"auth.disabled=false", "rate-limit.read.requests-per-second=0.01", "rate-limit.read.burst=3"})
+@AutoConfigureMockMvc
+public class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private Library library;
+
+    @Test
+    public void assertCredentialsAreCheckedAndRemembered() throws Exception {
+        mockMvc.perform(get("/caches/books/stats"))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+        mockMvc.perform(get("/caches/books/stats").with(httpBasic("user", "wrong")))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+        mockMvc.perform(get("/caches/books/stats").with(httpBasic("admin", "highlysecure")))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(get("/caches/books/stats").with(httpBasic("admin", "highlysecure")))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        final CaffeineCache authentications = (CaffeineCache) cacheManager.getCache(CacheConfig.AUTHENTICATIONS);
+        assertEquals(1, authentications.getNativeCache().stats().hitCount());
+    }
+
+    @Test
+    public void assertHealthProbesNeedNoCredentials() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(get("/actuator/health/liveness"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    public void assertReadRoleCannotDelete() throws Exception {
+        mockMvc.perform(delete("/books/isbn/unknown").with(httpBasic("user", "lowsecure")))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @Test
+    public void assertReadsOverTheLimitAreTurnedDown() throws Exception {
+        for(int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/caches/books/stats").with(httpBasic("user", "lowsecure")))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        }
+        mockMvc.perform(get("/caches/books/stats").with(httpBasic("user", "lowsecure")))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().exists("Retry-After"));
+    }
+
+    @Test
+    public void assertBooksKeepTheirCachePolicy() throws Exception {
+        library.createBook(new Book("securityIsbn", "New Title", "testAuthor", 2023, 1));
+        try {
+            // security sends no-cache headers by default, which would keep a shared cache from holding any book
+            mockMvc.perform(get("/books/isbn/securityIsbn").with(httpBasic("admin", "highlysecure")))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=0, public, s-maxage=5"))
+                    // shared caches keep a copy per credentials rather than serving it to anyone
+                    .andExpect(MockMvcResultMatchers.header().stringValues("Vary", CoreMatchers.hasItem("Authorization")))
+                    .andExpect(MockMvcResultMatchers.header().doesNotExist("Pragma"));
+        } finally {
+            library.removeBook("securityIsbn");
+        }
+    }
+}
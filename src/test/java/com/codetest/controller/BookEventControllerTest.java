@@ -0,0 +1,49 @@
+package com.codetest.controller;
+
+import com.codetest.config.DisableSecurityConfig;
+import com.codetest.model.BookEvent;
+import com.codetest.model.BookView;
+import com.codetest.service.BookEvents;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import reactor.core.publisher.Flux;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@WebMvcTest
+@ContextConfiguration(classes = {DisableSecurityConfig.class})
+@Import({BookEventController.class})
+public class BookEventControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookEvents bookEvents;
+
+    @Test
+    public void assertEventsAreSentWithTheirSequence() throws Exception {
+        final BookView book = new BookView(1L, "testIsbn", "New Title", "testAuthor", 2023, 9, 10);
+        when(bookEvents.stream(5L)).thenReturn(Flux.just(new BookEvent(6, BookEvent.Type.BORROWED, book)));
+
+        final MvcResult result = mockMvc.perform(get("/books/events").header("Last-Event-ID", "5").param("after", "1"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith("text/event-stream"))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "id:6\ndata:{\"sequence\":6,\"type\":\"BORROWED\",\"book\":{\"id\":1,\"isbn\":\"testIsbn\",\"title\":\"New Title\","
+                                + "\"author\":\"testAuthor\",\"publicationYear\":2023,\"avaliableCopies\":9,\"totalAvaliableCopies\":10}}\n\n"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.codetest.controller;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookView;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class BookJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void assertJsonKeepsTheEntityFields() throws Exception {
+        final Book book = new Book("testIsbn", "New \"Title\"", "testAuthor", 2023, 10);
+        book.reduceCopy();
+
+        final JsonNode json = this.objectMapper.readTree(new BookJson(this.objectMapper, false).bytes(book));
+
+        assertEquals("testIsbn", json.get("isbn").asText());
+        assertEquals("New \"Title\"", json.get("title").asText());
+        assertEquals("testAuthor", json.get("author").asText());
+        assertEquals(2023, json.get("publicationYear").asInt());
+        assertEquals(9, json.get("avaliableCopies").asInt());
+        assertEquals(10, json.get("totalAvaliableCopies").asInt());
+        // the version goes out as the ETag instead
+        final ObjectNode entity = (ObjectNode) this.objectMapper.readTree(this.objectMapper.writeValueAsBytes(book));
+        entity.remove("version");
+        assertEquals(entity, json);
+    }
+
+    @Test
+    public void assertBytesAreKeptUntilCopiesChange() {
+        final BookJson bookJson = new BookJson(this.objectMapper, true);
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+
+        final byte[] first = bookJson.bytes(book);
+        assertSame(first, bookJson.bytes(book));
+
+        book.reduceCopy();
+        final byte[] borrowed = bookJson.bytes(book);
+        assertNotSame(first, borrowed);
+        assertEquals(9, BookView.of(book).avaliableCopies());
+
+        // a reloaded book is a different instance, even with the same count
+        final Book reloaded = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        reloaded.reduceCopy();
+        final byte[] fresh = bookJson.bytes(reloaded);
+        assertNotSame(borrowed, fresh);
+        assertArrayEquals(borrowed, fresh);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void assertBytesGoWithTheirBook() throws Exception {
+        final BookJson bookJson = new BookJson(this.objectMapper, true);
+        final Cache<Book, ?> rendered = (Cache<Book, ?>) ReflectionTestUtils.getField(bookJson, "rendered");
+        bookJson.bytes(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+
+        // nothing holds the book any more, as when it is evicted from the books cache
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(rendered.estimatedSize() > 0 && System.nanoTime() < deadline) {
+            System.gc();
+            rendered.cleanUp();
+            Thread.sleep(10);
+        }
+        assertEquals(0, rendered.estimatedSize());
+    }
+}
@@ -0,0 +1,106 @@
+package com.codetest.controller;
+
+import com.codetest.cache.HotKeys;
+import com.codetest.config.CacheConfig;
+import com.codetest.config.DisableSecurityConfig;
+import com.codetest.model.Book;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@WebMvcTest(properties = "cache.books.maximum-size=10")
+@ContextConfiguration(classes = {DisableSecurityConfig.class})
+@Import({CacheController.class, CacheConfig.class})
+public class CacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private HotKeys hotIsbns;
+
+    @Test
+    public void assertBooksCacheStatsAreReported() throws Exception {
+        final Cache books = cacheManager.getCache("books");
+        books.put("testIsbn", new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        books.get("testIsbn");
+        books.get("otherIsbn");
+
+        mockMvc.perform(get("/caches/books/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hitCount").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missCount").value(1));
+    }
+
+    @Test
+    public void assertHotBooksAreListedAndPinned() throws Exception {
+        final Cache books = cacheManager.getCache("books");
+        books.put("hotIsbn", new Book("hotIsbn", "New Title", "testAuthor", 2023, 10));
+        for(int i = 0; i < 5; i++) {
+            hotIsbns.record("hotIsbn");
+        }
+        // far more books than the cache holds, none of them looked up
+        for(int i = 0; i < 1000; i++) {
+            books.put("coldIsbn" + i, new Book("coldIsbn" + i, "New Title", "testAuthor", 2023, 10));
+        }
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = (com.github.benmanes.caffeine.cache.Cache<?, ?>) books.getNativeCache();
+        caffeine.cleanUp();
+
+        try {
+            // read around the cache to leave its stats alone
+            assertTrue(caffeine.asMap().containsKey("hotIsbn"));
+            assertEquals(11, caffeine.estimatedSize());
+            mockMvc.perform(get("/caches/books/hot"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$[0].isbn").value("hotIsbn"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$[0].lookups").value(5));
+        } finally {
+            books.clear();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void assertTurningHotKeepsTheTimeLeftToExpiry() throws Exception {
+        final Cache books = cacheManager.getCache("books");
+        books.put("reweighedIsbn", new Book("reweighedIsbn", "New Title", "testAuthor", 2023, 10));
+        final com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) books.getNativeCache();
+        final Duration written = caffeine.policy().expireVariably().orElseThrow().getExpiresAfter("reweighedIsbn").orElseThrow();
+
+        try {
+            Thread.sleep(10);
+            for(int i = 0; i < 5; i++) {
+                hotIsbns.record("reweighedIsbn");
+            }
+            assertEquals(0, caffeine.policy().eviction().orElseThrow().weightOf("reweighedIsbn").orElseThrow());
+            assertTrue(caffeine.policy().expireVariably().orElseThrow().getExpiresAfter("reweighedIsbn").orElseThrow().compareTo(written) < 0);
+
+            books.put("reweighedIsbn", new Book("reweighedIsbn", "New Title", "testAuthor", 2023, 9));
+            assertTrue(caffeine.policy().expireVariably().orElseThrow().getExpiresAfter("reweighedIsbn").orElseThrow().compareTo(written) > 0);
+        } finally {
+            books.clear();
+        }
+    }
+
+    @Test
+    public void assertUnknownCacheIsNotFound() throws Exception {
+        mockMvc.perform(get("/caches/unknown/stats"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+}
@@ -1,9 +1,18 @@
 package com.codetest.controller;
 
+import com.codetest.cache.HotKeys;
 import com.codetest.config.DisableSecurityConfig;
+import com.codetest.exception.BookNotFoundException;
+import com.codetest.exception.OutOfStockException;
+import com.codetest.exception.OverReturnException;
 import com.codetest.model.Book;
+import com.codetest.model.ImportResult;
+import com.codetest.service.BookImporter;
+import com.codetest.service.CatalogueLoader;
+import com.codetest.service.Hold;
 import com.codetest.service.Library;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncListener;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,13 +22,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -27,7 +46,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @WebMvcTest
 @ExtendWith(MockitoExtension.class)
 @ContextConfiguration(classes = {DisableSecurityConfig.class})
-@Import(LibraryController.class)
+@Import({LibraryController.class, LibraryAdvice.class, BookJson.class})
 public class LibraryControllerTest {
 
     @Autowired
@@ -36,6 +55,15 @@ public class LibraryControllerTest {
     @MockBean
     private Library library;
 
+    @MockBean
+    private HotKeys hotIsbns;
+
+    @MockBean
+    private BookImporter bookImporter;
+
+    @MockBean
+    private CatalogueLoader catalogueLoader;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -72,13 +100,39 @@ public class LibraryControllerTest {
         response.andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is(book.getIsbn())));
         verify(library, times(1)).findBookByISBN("testIsbn");
+        verify(hotIsbns, times(1)).record("testIsbn");
+    }
+
+    @Test
+    public void assertUnchangedBookIsNotModified() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.findBookByISBN("testIsbn")).thenReturn(book);
+
+        final String etag = mockMvc.perform(get("/books/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=0, public, s-maxage=5"))
+                .andExpect(MockMvcResultMatchers.header().string("Vary", "Authorization"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/books/isbn/testIsbn").header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", etag))
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=0, public, s-maxage=5"))
+                .andExpect(MockMvcResultMatchers.content().bytes(new byte[0]));
+
+        book.reduceCopy();
+
+        mockMvc.perform(get("/books/isbn/testIsbn").header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", CoreMatchers.not(etag)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.avaliableCopies", CoreMatchers.is(9)));
     }
 
     @Test
     public void assertBookIsFetchedByAuthor() throws Exception {
         // Mocking the service behavior
         final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
-        when(library.findBooksByAuthor("testAuthor")).thenReturn(Arrays.asList(book));
+        when(library.findBooksByAuthor("testAuthor", null, 100)).thenReturn(Arrays.asList(book));
 
         // Performing an HTTP POST request to create an employee
         ResultActions response = mockMvc.perform(get("/books/author/testAuthor")
@@ -87,15 +141,56 @@ public class LibraryControllerTest {
 
         // Asserting the response expectations
         response.andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
-        verify(library, times(1)).findBooksByAuthor("testAuthor");
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(LibraryController.NEXT_CURSOR));
+        verify(library, times(1)).findBooksByAuthor("testAuthor", null, 100);
+    }
+
+    @Test
+    public void assertFullPageOfBooksByAuthorReturnsNextCursor() throws Exception {
+        // Mocking the service behavior
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        ReflectionTestUtils.setField(book, "id", 7L);
+        when(library.findBooksByAuthor("testAuthor", 3L, 1)).thenReturn(Arrays.asList(book));
+
+        ResultActions response = mockMvc.perform(get("/books/author/testAuthor?after=3&size=1")
+                .with(csrf())
+                .accept(MediaType.ALL));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.header().string(LibraryController.NEXT_CURSOR, "7"));
+    }
+
+    @Test
+    public void assertBooksByAuthorAreStreamedAsNdjson() throws Exception {
+        // Mocking the service behavior
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        final Book otherBook = new Book("testIsbn1", "New New Title", "testAuthor", 2024, 10);
+        when(library.findBooksByAuthor("testAuthor", null, 1000)).thenReturn(Arrays.asList(book, otherBook));
+
+        MvcResult result = mockMvc.perform(get("/books/author/testAuthor")
+                .with(csrf())
+                .accept(LibraryController.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // Asserting the response expectations
+        final String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        final String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("testIsbn1", objectMapper.readTree(lines[1]).get("isbn").asText());
     }
 
     @Test
     public void assertBookIsBorrowed() throws Exception {
         // Mocking the service behavior
         final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
-        when(library.borrowBook("testIsbn")).thenReturn(book);
+        when(library.borrowBook("testIsbn", LibraryController.ANONYMOUS)).thenReturn(book);
 
         // Performing an HTTP POST request to create an employee
         ResultActions response = mockMvc.perform(put("/books/borrow/isbn/testIsbn")
@@ -105,14 +200,14 @@ public class LibraryControllerTest {
         // Asserting the response expectations
         response.andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is(book.getIsbn())));
-        verify(library, times(1)).borrowBook("testIsbn");
+        verify(library, times(1)).borrowBook("testIsbn", LibraryController.ANONYMOUS);
     }
 
     @Test
     public void assertBookIsReturned() throws Exception {
         // Mocking the service behavior
         final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
-        when(library.returnBook("testIsbn")).thenReturn(book);
+        when(library.returnBook("testIsbn", LibraryController.ANONYMOUS)).thenReturn(book);
 
         // Performing an HTTP POST request to create an employee
         ResultActions response = mockMvc.perform(put("/books/return/isbn/testIsbn")
@@ -122,7 +217,7 @@ public class LibraryControllerTest {
         // Asserting the response expectations
         response.andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is(book.getIsbn())));
-        verify(library, times(1)).returnBook("testIsbn");
+        verify(library, times(1)).returnBook("testIsbn", LibraryController.ANONYMOUS);
     }
 
     @Test
@@ -139,4 +234,224 @@ public class LibraryControllerTest {
         response.andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    public void assertBooksAreImportedFromJsonArray() throws Exception {
+        // Mocking the service behavior
+        final List<Book> imported = new ArrayList<>();
+        when(bookImporter.importBooks(any())).thenAnswer(invocation -> {
+            ((Iterator<Book>) invocation.getArgument(0)).forEachRemaining(imported::add);
+            return new ImportResult(imported.size(), List.of());
+        });
+        final List<Book> books = List.of(new Book("testIsbn", "New Title", "testAuthor", 2023, 10),
+                new Book("testIsbn1", "New New Title", "testAuthor", 2024, 5));
+
+        ResultActions response = mockMvc.perform(post("/books/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .with(csrf())
+                .content(objectMapper.writeValueAsString(books)));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2));
+        assertEquals(books, imported);
+        assertEquals(5, imported.get(1).getTotalAvaliableCopies());
+    }
+
+    @Test
+    public void assertBooksAreImportedFromCsv() throws Exception {
+        // Mocking the service behavior
+        final List<Book> imported = new ArrayList<>();
+        when(bookImporter.importBooks(any())).thenAnswer(invocation -> {
+            ((Iterator<Book>) invocation.getArgument(0)).forEachRemaining(imported::add);
+            return new ImportResult(imported.size(), List.of());
+        });
+
+        ResultActions response = mockMvc.perform(post("/books/import")
+                .contentType(LibraryController.TEXT_CSV)
+                .with(csrf())
+                .content("isbn,title,author,publicationYear,totalAvaliableCopies\n"
+                        + "testIsbn,\"Title, with comma\",testAuthor,2023,10\n"
+                        + "testIsbn1,New New Title,testAuthor,2024,\n"));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2));
+        assertEquals(2, imported.size());
+        assertEquals("Title, with comma", imported.get(0).getTitle());
+        assertEquals(10, imported.get(0).getTotalAvaliableCopies());
+        assertEquals(0, imported.get(1).getTotalAvaliableCopies());
+    }
+
+    @Test
+    public void assertCsvValuesMayHoldLineBreaks() throws Exception {
+        // Mocking the service behavior
+        final List<Book> imported = new ArrayList<>();
+        when(bookImporter.importBooks(any())).thenAnswer(invocation -> {
+            ((Iterator<Book>) invocation.getArgument(0)).forEachRemaining(imported::add);
+            return new ImportResult(imported.size(), List.of());
+        });
+
+        ResultActions response = mockMvc.perform(post("/books/import")
+                .contentType(LibraryController.TEXT_CSV)
+                .with(csrf())
+                .content("isbn,title,author,publicationYear,totalAvaliableCopies\n"
+                        + "testIsbn,\"Title\non two \"\"lines\"\"\",testAuthor,2023,10\n"
+                        + "testIsbn1,New New Title,testAuthor,2024,5\n"));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2));
+        assertEquals("Title\non two \"lines\"", imported.get(0).getTitle());
+        assertEquals(10, imported.get(0).getTotalAvaliableCopies());
+        assertEquals("testIsbn1", imported.get(1).getIsbn());
+    }
+
+    @Test
+    public void assertBooksAreFetchedByIsbns() throws Exception {
+        // Mocking the service behavior
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.findBooksByISBN(List.of("testIsbn", "otherIsbn"))).thenReturn(List.of(book));
+
+        ResultActions response = mockMvc.perform(get("/books/isbn?isbn=testIsbn,otherIsbn")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].isbn", CoreMatchers.is(book.getIsbn())));
+    }
+
+    @Test
+    public void assertBooksAreBorrowedTogether() throws Exception {
+        // Mocking the service behavior
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        final Book otherBook = new Book("otherIsbn", "New New Title", "testAuthor", 2023, 10);
+        when(library.borrowBooks(List.of("testIsbn", "otherIsbn"), LibraryController.ANONYMOUS)).thenReturn(List.of(book, otherBook));
+
+        ResultActions response = mockMvc.perform(put("/books/borrow")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"testIsbn\",\"otherIsbn\"]"));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+        verify(library, times(1)).borrowBooks(List.of("testIsbn", "otherIsbn"), LibraryController.ANONYMOUS);
+    }
+
+    @Test
+    public void assertBooksAreReturnedTogether() throws Exception {
+        // Mocking the service behavior
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.returnBooks(List.of("testIsbn"), LibraryController.ANONYMOUS)).thenReturn(List.of(book));
+
+        ResultActions response = mockMvc.perform(put("/books/return")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"testIsbn\"]"));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].isbn", CoreMatchers.is(book.getIsbn())));
+        verify(library, times(1)).returnBooks(List.of("testIsbn"), LibraryController.ANONYMOUS);
+    }
+
+    @Test
+    public void assertBooksAreSearched() throws Exception {
+        // Mocking the service behavior
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.searchBooks("new tit", 5)).thenReturn(List.of(book));
+
+        ResultActions response = mockMvc.perform(get("/books/search?q=new tit&k=5")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON));
+
+        // Asserting the response expectations
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].isbn", CoreMatchers.is(book.getIsbn())));
+        verify(library, times(1)).searchBooks("new tit", 5);
+    }
+
+
+    @Test
+    public void assertGrantedHoldReturnsTheBook() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        final Hold hold = mock(Hold.class);
+        when(hold.granted()).thenReturn(CompletableFuture.completedFuture(book));
+        when(library.placeHold("testIsbn", LibraryController.ANONYMOUS)).thenReturn(hold);
+
+        final MvcResult result = mockMvc.perform(put("/books/hold/isbn/testIsbn").with(csrf()))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is("testIsbn")));
+    }
+
+    @Test
+    public void assertHoldGrantedBetweenPollsIsCollectedWithTheBook() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        final Hold hold = mock(Hold.class);
+        when(hold.granted()).thenReturn(CompletableFuture.completedFuture(book));
+        when(library.findHold("testIsbn", LibraryController.ANONYMOUS)).thenReturn(Optional.of(hold));
+
+        final MvcResult result = mockMvc.perform(get("/books/hold/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is("testIsbn")));
+        verify(library, times(1)).collectHold(hold);
+    }
+
+    @Test
+    public void assertWaitingHoldTimesOutAsAccepted() throws Exception {
+        final Hold hold = mock(Hold.class);
+        when(hold.granted()).thenReturn(new CompletableFuture<>());
+        when(library.findHold("testIsbn", LibraryController.ANONYMOUS)).thenReturn(Optional.of(hold));
+
+        final MvcResult result = mockMvc.perform(get("/books/hold/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        // MockMvc never times requests out on its own
+        for(AsyncListener listener : ((MockAsyncContext) result.getRequest().getAsyncContext()).getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isAccepted());
+    }
+
+    @Test
+    public void assertHoldIsCancelled() throws Exception {
+        when(library.cancelHold("testIsbn", LibraryController.ANONYMOUS)).thenReturn(true);
+
+        mockMvc.perform(delete("/books/hold/isbn/testIsbn").with(csrf()))
+                .andExpect(MockMvcResultMatchers.status().isNoContent());
+        mockMvc.perform(delete("/books/hold/isbn/otherIsbn").with(csrf()))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void assertLibraryOutcomesHaveTheirOwnStatus() throws Exception {
+        when(library.findBookByISBN("unknownIsbn")).thenThrow(new BookNotFoundException("Book was not found using isbn : ", "unknownIsbn"));
+        when(library.borrowBook("testIsbn", LibraryController.ANONYMOUS)).thenThrow(new OutOfStockException("testIsbn"));
+        when(library.returnBook("testIsbn", LibraryController.ANONYMOUS)).thenThrow(new OverReturnException("testIsbn"));
+
+        mockMvc.perform(get("/books/isbn/unknownIsbn"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.detail", CoreMatchers.is("Book was not found using isbn : unknownIsbn")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.subject", CoreMatchers.is("unknownIsbn")));
+        verify(hotIsbns, never()).record("unknownIsbn");
+        mockMvc.perform(put("/books/borrow/isbn/testIsbn").with(csrf()))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title", CoreMatchers.is("Out of stock")));
+        mockMvc.perform(put("/books/return/isbn/testIsbn").with(csrf()))
+                .andExpect(MockMvcResultMatchers.status().isUnprocessableEntity())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title", CoreMatchers.is("Over return")));
+    }
 }
@@ -0,0 +1,67 @@
+package com.codetest.controller;
+
+import com.codetest.config.DisableSecurityConfig;
+import com.codetest.model.Loan;
+import com.codetest.service.Library;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@WebMvcTest
+@ContextConfiguration(classes = {DisableSecurityConfig.class})
+@Import(LoanController.class)
+public class LoanControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private Library library;
+
+    @Test
+    public void assertOwnLoansAreFetchedForAnonymous() throws Exception {
+        when(library.findOpenLoans(LibraryController.ANONYMOUS, 1000)).thenReturn(List.of(loan(1L)));
+
+        mockMvc.perform(get("/loans/me"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].isbn").value("testIsbn"));
+    }
+
+    @Test
+    public void assertFullPageOfHistoryReturnsNextCursor() throws Exception {
+        when(library.findLoans("testMember", 3L, 1)).thenReturn(List.of(loan(7L)));
+
+        mockMvc.perform(get("/loans/member/testMember/history?after=3&size=1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.header().string(LibraryController.NEXT_CURSOR, "7"));
+    }
+
+    @Test
+    public void assertOverdueLoansAreCapped() throws Exception {
+        when(library.findOverdueLoans(1000)).thenReturn(List.of(loan(1L)));
+
+        mockMvc.perform(get("/loans/overdue?size=5000"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].member").value("testMember"));
+        verify(library, times(1)).findOverdueLoans(1000);
+    }
+
+    private static Loan loan(long id) {
+        final Loan loan = new Loan("testMember", "testIsbn", Instant.now(), Instant.now());
+        ReflectionTestUtils.setField(loan, "id", id);
+        return loan;
+    }
+}
@@ -0,0 +1,147 @@
+package com.codetest.controller;
+
+import com.codetest.cache.HotKeys;
+import com.codetest.config.DisableSecurityConfig;
+import com.codetest.exception.BookNotFoundException;
+import com.codetest.model.Book;
+import com.codetest.service.Library;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@WebMvcTest
+@ContextConfiguration(classes = {DisableSecurityConfig.class})
+@Import({ReactiveLibraryController.class, LibraryAdvice.class})
+public class ReactiveLibraryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReactiveLibraryController controller;
+
+    @MockBean
+    private Library library;
+
+    @MockBean
+    private HotKeys hotIsbns;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void assertBookIsCreated() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.createBook(book)).thenReturn(book);
+
+        perform(post("/reactive/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(book)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is(book.getIsbn())));
+        verify(library, times(1)).createBook(book);
+    }
+
+    @Test
+    public void assertBookIsFetchedByIsbn() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.findBookByISBN("testIsbn")).thenReturn(book);
+
+        perform(get("/reactive/books/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.isbn", CoreMatchers.is(book.getIsbn())));
+    }
+
+    @Test
+    public void assertUnknownIsbnIsNotFound() throws Exception {
+        when(library.findBookByISBN("unknown")).thenThrow(new BookNotFoundException("Book was not found for isbn : unknown"));
+
+        perform(get("/reactive/books/isbn/unknown"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void assertBooksByAuthorAreStreamedPageByPage() throws Exception {
+        ReflectionTestUtils.setField(controller, "pageSize", 2);
+        final Book first = book("testIsbn1", 1L);
+        final Book second = book("testIsbn2", 2L);
+        final Book third = book("testIsbn3", 3L);
+        // held back until the request has been handled, as streaming writes to the response from another thread
+        final CountDownLatch handled = new CountDownLatch(1);
+        when(library.findBooksByAuthor("testAuthor", null, 2)).thenAnswer(invocation -> {
+            handled.await();
+            return List.of(first, second);
+        });
+        when(library.findBooksByAuthor("testAuthor", 2L, 2)).thenReturn(List.of(third));
+
+        final MvcResult result = mockMvc.perform(get("/reactive/books/author/testAuthor").accept(LibraryController.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        handled.countDown();
+
+        final String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        final String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("testIsbn3", objectMapper.readTree(lines[2]).get("isbn").asText());
+        verify(library, times(2)).findBooksByAuthor(eq("testAuthor"), any(), eq(2));
+    }
+
+    @Test
+    public void assertBookIsBorrowedAndReturned() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        when(library.borrowBook("testIsbn", LibraryController.ANONYMOUS)).thenReturn(book);
+        when(library.returnBook("testIsbn", LibraryController.ANONYMOUS)).thenReturn(book);
+
+        perform(put("/reactive/books/borrow/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        perform(put("/reactive/books/return/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        verify(library, times(1)).borrowBook("testIsbn", LibraryController.ANONYMOUS);
+        verify(library, times(1)).returnBook("testIsbn", LibraryController.ANONYMOUS);
+    }
+
+    @Test
+    public void assertBookIsRemoved() throws Exception {
+        perform(delete("/reactive/books/isbn/testIsbn"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        verify(library, times(1)).removeBook("testIsbn");
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        final MvcResult result = mockMvc.perform(request.with(csrf()))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static Book book(String isbn, long id) {
+        final Book book = new Book(isbn, "New Title", "testAuthor", 2023, 10);
+        ReflectionTestUtils.setField(book, "id", id);
+        return book;
+    }
+}
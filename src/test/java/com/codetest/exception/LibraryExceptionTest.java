@@ -0,0 +1,25 @@
+package com.codetest.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LibraryExceptionTest {
+
+    @Test
+    public void assertNoStackTraceIsTaken() {
+        final OutOfStockException thrown = new OutOfStockException("testIsbn");
+
+        assertEquals(0, thrown.getStackTrace().length);
+        assertEquals("No copies exist to borrow for isbn : testIsbn", thrown.getMessage());
+        assertEquals("testIsbn", thrown.getSubject());
+    }
+
+    @Test
+    public void assertWholeMessageHasNoSubject() {
+        final BookNotFoundException thrown = new BookNotFoundException("Book was not found");
+
+        assertEquals("Book was not found", thrown.getMessage());
+        assertEquals("", thrown.getSubject());
+    }
+}
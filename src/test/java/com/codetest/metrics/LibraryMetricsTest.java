@@ -0,0 +1,73 @@
+package com.codetest.metrics;
+
+import com.codetest.exception.BookNotFoundException;
+import com.codetest.exception.OutOfStockException;
+import com.codetest.exception.OverReturnException;
+import com.codetest.model.Book;
+import com.codetest.service.Library;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Transactional
+public class LibraryMetricsTest {
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void clearCache() {
+        cacheManager.getCache("books").clear();
+    }
+
+    @Test
+    public void assertOperationsAreTimedByOperationAndException() {
+        final long borrowed = timed("borrowBook", "none");
+        final long missing = timed("findBookByISBN", "BookNotFoundException");
+
+        library.createBook(new Book("metricsIsbn", "New Title", "testAuthor", 2023, 10));
+        library.borrowBook("metricsIsbn", "testMember");
+        assertThrows(BookNotFoundException.class, () -> library.findBookByISBN("unknownIsbn"));
+
+        assertEquals(borrowed + 1, timed("borrowBook", "none"));
+        assertEquals(missing + 1, timed("findBookByISBN", "BookNotFoundException"));
+    }
+
+    @Test
+    public void assertOutOfStockAndOverReturnAreCounted() {
+        final double outOfStock = rejections("out_of_stock");
+        final double overReturn = rejections("over_return");
+
+        library.createBook(new Book("metricsIsbn", "New Title", "testAuthor", 2023, 1));
+        library.borrowBook("metricsIsbn", "testMember");
+        assertThrows(OutOfStockException.class, () -> library.borrowBook("metricsIsbn", "testMember"));
+        library.returnBook("metricsIsbn", "testMember");
+        assertThrows(OverReturnException.class, () -> library.returnBook("metricsIsbn", "testMember"));
+
+        assertEquals(outOfStock + 1, rejections("out_of_stock"));
+        assertEquals(overReturn + 1, rejections("over_return"));
+    }
+
+    private long timed(String operation, String exception) {
+        return meterRegistry.find(LibraryMetrics.OPERATION).tag("operation", operation).tag("exception", exception)
+                .timers().stream().mapToLong(timer -> timer.count()).sum();
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get(LibraryMetrics.REJECTION).tag("reason", reason).counter().count();
+    }
+}
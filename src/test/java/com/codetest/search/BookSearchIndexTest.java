@@ -0,0 +1,70 @@
+package com.codetest.search;
+
+import com.codetest.model.Book;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookSearchIndexTest {
+
+    private final BookSearchIndex index = new BookSearchIndex();
+
+    @Test
+    public void assertWordsAreTokenizedCaseInsensitively() {
+        assertEquals(List.of("the", "lord", "of", "the", "rings", "2nd"), BookSearchIndex.tokenize("The Lord-of the RINGS (2nd)"));
+    }
+
+    @Test
+    public void assertAllWordsMustMatchAsPrefixes() {
+        index.add(new Book("isbn1", "The Lord of the Rings", "Tolkien", 1954, 1));
+        index.add(new Book("isbn2", "The Hobbit", "Tolkien", 1937, 1));
+        index.add(new Book("isbn3", "Lord of the Flies", "Golding", 1954, 1));
+
+        assertEquals(List.of("isbn1"), index.search("lord tolk", 10));
+        assertEquals(List.of("isbn2"), index.search("hob", 10));
+        assertTrue(index.search("lord hobbit", 10).isEmpty());
+        assertTrue(index.search("dune", 10).isEmpty());
+    }
+
+    @Test
+    public void assertRankingPrefersWholeWordsAndTitleWords() {
+        index.add(new Book("isbn1", "Ring of Fire", "Someone", 2000, 1));
+        index.add(new Book("isbn2", "Rings of Power", "Someone", 2001, 1));
+        index.add(new Book("isbn3", "Collected Stories", "Ring Lardner", 1926, 1));
+
+        // whole title word, then title prefix, then whole author word
+        assertEquals(List.of("isbn1", "isbn2", "isbn3"), index.search("ring", 10));
+        assertEquals(List.of("isbn1", "isbn2"), index.search("ring", 2));
+    }
+
+    @Test
+    public void assertTermsNoBookHasAreDropped() {
+        index.add(new Book("isbn1", "Old Title", "Author", 2000, 1));
+        index.add(new Book("isbn2", "Other Title", "Author", 2000, 1));
+        index.add(new Book("isbn1", "New Title", "Author", 2000, 1));
+        index.remove("isbn2");
+
+        final Map<String, ?> postings = (Map<String, ?>) ReflectionTestUtils.getField(index, "postings");
+        assertEquals(Set.of("new", "title", "author"), postings.keySet());
+    }
+
+    @Test
+    public void assertRemovedAndReplacedBooksLeaveTheIndex() {
+        index.add(new Book("isbn1", "Old Title", "Author", 2000, 1));
+        index.add(new Book("isbn1", "New Title", "Author", 2000, 1));
+
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals(List.of("isbn1"), index.search("new", 10));
+
+        index.remove("isbn1");
+
+        assertTrue(index.search("new", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,180 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookEventsTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private BookEvents events = new BookEvents(4, 2, BookEvents.SlowConsumer.DISCONNECT);
+
+    @AfterEach
+    public void close() {
+        this.events.close();
+    }
+
+    private void publish(int count) {
+        for(int i = 0; i < count; i++) {
+            this.events.publish(BookEvent.Type.BORROWED, new Book("testIsbn", "New Title", "testAuthor", 2023, i));
+        }
+    }
+
+    private static List<Long> sequences(List<BookEvent> events) {
+        return events.stream().map(BookEvent::sequence).toList();
+    }
+
+    @Test
+    public void assertEventsAreNumberedInOrder() {
+        publish(1);
+        // joining goes through the fan out thread like publishing, so the subscriber joins after the first event
+        final CompletableFuture<List<BookEvent>> stream = this.events.stream(null).take(2).collectList().toFuture();
+        publish(2);
+
+        final List<BookEvent> received = stream.join();
+        assertEquals(List.of(2L, 3L), sequences(received));
+        assertEquals(BookEvent.Type.BORROWED, received.get(0).type());
+        assertEquals(1, received.get(1).book().avaliableCopies());
+    }
+
+    @Test
+    public void assertResumingReplaysWhatWasMissed() {
+        publish(3);
+
+        assertEquals(List.of(2L, 3L), sequences(this.events.stream(1L).take(2).collectList().block(TIMEOUT)));
+    }
+
+    @Test
+    public void assertResumingPastTheRingStartsWithReset() {
+        publish(6);
+
+        final List<BookEvent> received = this.events.stream(0L).take(5).collectList().block(TIMEOUT);
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), sequences(received));
+        assertEquals(BookEvent.Type.RESET, received.get(0).type());
+        assertNull(received.get(0).book());
+        // a sequence from an earlier run
+        assertEquals(BookEvent.Type.RESET, this.events.stream(100L).blockFirst(TIMEOUT).type());
+    }
+
+    @Test
+    public void assertSlowConsumerIsDisconnected() throws Exception {
+        final Reader reader = subscribe();
+        publish(3);
+        awaitPublished(3);
+
+        reader.read();
+        assertTrue(reader.done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 2L), sequences(reader.received));
+    }
+
+    @Test
+    public void assertSlowConsumerLosesOldestEvents() throws Exception {
+        this.events.close();
+        this.events = new BookEvents(4, 2, BookEvents.SlowConsumer.DROP_OLDEST);
+        final Reader reader = subscribe();
+        publish(5);
+        awaitPublished(4);
+
+        reader.read();
+        publish(1);
+        assertTrue(reader.received(3));
+        assertEquals(List.of(4L, 5L, 6L), sequences(reader.received));
+        assertFalse(reader.done.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void assertClosingCompletesEverySubscriber() throws Exception {
+        final Reader first = subscribe();
+        final Reader second = subscribe();
+        publish(1);
+        awaitPublished(1);
+
+        this.events.close();
+        assertTrue(first.done.await(5, TimeUnit.SECONDS));
+        assertTrue(second.done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void assertEventCarriesTheBookAsCommitted() {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 2);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.events.publish(BookEvent.Type.BORROWED, book);
+            // changed again by a transaction that committed first
+            book.reduceCopy();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, this.events.stream(0L).blockFirst(TIMEOUT).book().avaliableCopies());
+    }
+
+    /**
+     * Publishing is done on the fan out thread, in order, so once the last of the ring is replayed all of it went out.
+     */
+    private void awaitPublished(int kept) {
+        this.events.stream(0L).take(kept).blockLast(TIMEOUT);
+    }
+
+    /**
+     * Joins and reads nothing until told to.
+     */
+    private Reader subscribe() {
+        final Reader reader = new Reader();
+        this.events.stream(null).subscribe(reader);
+        return reader;
+    }
+
+    private static class Reader extends BaseSubscriber<BookEvent> {
+
+        final List<BookEvent> received = new CopyOnWriteArrayList<>();
+
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(BookEvent event) {
+            this.received.add(event);
+        }
+
+        @Override
+        protected void hookFinally(SignalType type) {
+            this.done.countDown();
+        }
+
+        void read() {
+            request(Long.MAX_VALUE);
+        }
+
+        boolean received(int count) throws InterruptedException {
+            final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while(this.received.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            return this.received.size() == count;
+        }
+    }
+}
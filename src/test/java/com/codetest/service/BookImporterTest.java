@@ -0,0 +1,109 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import com.codetest.model.ImportResult;
+import com.codetest.model.ImportResult.Rejection;
+import com.codetest.repository.BookRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class BookImporterTest {
+
+    @Autowired
+    private BookImporter bookImporter;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookEvents events;
+
+    @AfterEach
+    public void removeBooks() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void assertAllBooksAreImportedAcrossBatches() {
+        final ImportResult result = bookImporter.importBooks(IntStream.range(0, 20_000)
+                .mapToObj(i -> new Book("importIsbn" + i, "Title " + i, "author" + (i % 100), 2024, 3))
+                .iterator());
+
+        assertEquals(20_000, result.imported());
+        assertTrue(result.rejected().isEmpty());
+        assertEquals(20_000, bookRepository.count());
+        assertEquals(3, bookRepository.findByIsbn("importIsbn19999").get().getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertImportedBooksAreStreamedAsCreated() {
+        final CompletableFuture<List<BookEvent>> stream = events.stream(null)
+                .filter(event -> "streamedAuthor".equals(event.book().author()))
+                .take(3)
+                .collectList()
+                .toFuture();
+
+        bookImporter.importBooks(IntStream.range(0, 3)
+                .mapToObj(i -> new Book("streamedIsbn" + i, "Title " + i, "streamedAuthor", 2024, 1))
+                .iterator());
+
+        final List<BookEvent> received = stream.orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(List.of("streamedIsbn0", "streamedIsbn1", "streamedIsbn2"), received.stream().map(event -> event.book().isbn()).toList());
+        assertTrue(received.stream().allMatch(event -> event.type() == BookEvent.Type.CREATED));
+    }
+
+    @Test
+    public void assertConflictsAreReportedWithoutAbortingTheBatch() {
+        bookRepository.save(new Book("existingIsbn", "Existing", "testAuthor", 2020, 1));
+
+        final List<Book> books = new ArrayList<>();
+        books.add(new Book("newIsbn", "New", "testAuthor", 2024, 1));
+        books.add(new Book("existingIsbn", "Existing again", "testAuthor", 2024, 1));
+        books.add(new Book("newIsbn", "New again", "testAuthor", 2024, 1));
+        books.add(new Book("otherIsbn", null, "testAuthor", 2024, 1));
+        books.add(new Book("lastIsbn", "Last", "testAuthor", 2024, 1));
+
+        final ImportResult result = bookImporter.importBooks(books.iterator());
+
+        assertEquals(2, result.imported());
+        assertEquals(List.of(
+                new Rejection("newIsbn", BookImporter.REPEATED_ISBN),
+                new Rejection("otherIsbn", BookImporter.MISSING_VALUES),
+                new Rejection("existingIsbn", BookImporter.EXISTING_ISBN)), result.rejected());
+        assertEquals("Existing", bookRepository.findByIsbn("existingIsbn").get().getTitle());
+        assertTrue(bookRepository.findByIsbn("lastIsbn").isPresent());
+    }
+
+    @Test
+    public void assertMalformedRowsAreReportedWithoutAbortingTheImport() throws IOException {
+        final String json = "[{\"isbn\":\"firstIsbn\",\"title\":\"First\",\"author\":\"testAuthor\",\"publicationYear\":2024,\"totalAvaliableCopies\":1},"
+                + "{\"isbn\":\"badIsbn\",\"title\":\"Bad\",\"author\":\"testAuthor\",\"publicationYear\":\"last year\",\"totalAvaliableCopies\":1},"
+                + "{\"isbn\":\"lastIsbn\",\"title\":\"Last\",\"author\":\"testAuthor\",\"publicationYear\":2024,\"totalAvaliableCopies\":1}]";
+
+        final ImportResult result;
+        try(MappingIterator<Book> books = new ObjectMapper().readerFor(Book.class).readValues(json)) {
+            result = bookImporter.importBooks(books);
+        }
+
+        assertEquals(2, result.imported());
+        assertEquals(List.of(new Rejection(null, BookImporter.MALFORMED_ROW)), result.rejected());
+        assertTrue(bookRepository.findByIsbn("firstIsbn").isPresent());
+        assertTrue(bookRepository.findByIsbn("lastIsbn").isPresent());
+    }
+}
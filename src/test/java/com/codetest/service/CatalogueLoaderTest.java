@@ -0,0 +1,127 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import com.codetest.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"catalogue.warm-up.books=20", "import.batch-size=16"})
+public class CatalogueLoaderTest {
+
+    private static final int SNAPSHOT_BOOKS = 50;
+
+    private static Path snapshot;
+
+    @Autowired
+    private CatalogueLoader catalogueLoader;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private BookEvents events;
+
+    @DynamicPropertySource
+    static void snapshot(DynamicPropertyRegistry registry) {
+        try {
+            snapshot = Files.createTempFile("catalogue", ".snapshot");
+            snapshot.toFile().deleteOnExit();
+            CatalogueSnapshot.write(snapshot, IntStream.range(0, SNAPSHOT_BOOKS)
+                    .mapToObj(i -> new Book("snapshotIsbn" + i, "Snapshot title " + i, "snapshotAuthor", 2024, 3))
+                    .iterator());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        registry.add("catalogue.snapshot.path", snapshot::toString);
+    }
+
+    @Test
+    public void assertEmptyDatabaseIsSeededAndCacheWarmedBeforeReady() {
+        assertEquals(SNAPSHOT_BOOKS, bookRepository.findByAuthor("snapshotAuthor").size());
+
+        final Cache books = cacheManager.getCache("books");
+        assertNotNull(books.get("snapshotIsbn0"));
+        assertNotNull(books.get("snapshotIsbn19"));
+        assertNull(books.get("snapshotIsbn20"));
+
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+    }
+
+    @Test
+    public void assertSeededBooksAreStreamedAsCreated() {
+        // seeding went out before any test could subscribe, so it is read back from the replay ring
+        final List<BookEvent> created = events.stream(0L)
+                .filter(event -> event.type() == BookEvent.Type.CREATED)
+                .take(SNAPSHOT_BOOKS)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals("snapshotIsbn0", created.get(0).book().isbn());
+        assertEquals("snapshotIsbn49", created.get(SNAPSHOT_BOOKS - 1).book().isbn());
+    }
+
+    @Test
+    public void assertBooksCreatedAfterSeedingGetNewIds() {
+        final Book created = bookRepository.saveAndFlush(new Book("afterSnapshotIsbn", "New Title", "testAuthor", 2023, 1));
+        try {
+            assertTrue(bookRepository.findByAuthor("snapshotAuthor").stream().noneMatch(book -> book.getId().equals(created.getId())));
+        } finally {
+            bookRepository.delete(created);
+        }
+    }
+
+    @Test
+    public void assertSeedThatFailsPartwayLeavesNothing() {
+        // the snapshot breaks off after more than a batch of books
+        final Iterator<Book> broken = IntStream.range(0, 40)
+                .mapToObj(i -> {
+                    if(i == 30) {
+                        throw new IllegalStateException("Snapshot is cut short");
+                    }
+                    return new Book("brokenIsbn" + i, "Broken title " + i, "brokenAuthor", 2024, 3);
+                })
+                .iterator();
+
+        assertThrows(IllegalStateException.class, () -> catalogueLoader.seed(broken));
+        assertEquals(0, bookRepository.findByAuthor("brokenAuthor").size());
+    }
+
+    @Test
+    public void assertSnapshotHoldsTheWholeCatalogue() throws IOException {
+        assertEquals(bookRepository.count(), catalogueLoader.writeSnapshot());
+
+        final List<Book> read = new ArrayList<>();
+        CatalogueSnapshot.read(snapshot, true).forEachRemaining(read::add);
+        assertTrue(read.stream().anyMatch(book -> book.getIsbn().equals("snapshotIsbn49")));
+    }
+}
@@ -0,0 +1,66 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CatalogueSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void assertBooksComeBackWithAllCopiesIn() throws IOException {
+        final Book borrowed = new Book("testIsbn", "Tïtle with ünïcode", "testAuthor", 2023, 10);
+        borrowed.reduceCopy();
+        final List<Book> books = List.of(borrowed, new Book("otherIsbn", "x".repeat(1000), "otherAuthor", 1999, 0));
+        final Path path = this.directory.resolve("catalogue.snapshot");
+
+        assertEquals(2, CatalogueSnapshot.write(path, books.iterator()));
+        assertFalse(Files.exists(this.directory.resolve("catalogue.snapshot.partial")));
+
+        for(boolean mapped : new boolean[] {true, false}) {
+            final List<Book> read = new ArrayList<>();
+            CatalogueSnapshot.read(path, mapped).forEachRemaining(read::add);
+
+            assertEquals(2, read.size());
+            assertEquals("Tïtle with ünïcode", read.get(0).getTitle());
+            assertEquals("testAuthor", read.get(0).getAuthor());
+            assertEquals(2023, read.get(0).getPublicationYear());
+            assertEquals(10, read.get(0).getAvaliableCopies().get());
+            assertEquals("x".repeat(1000), read.get(1).getTitle());
+            assertEquals(0, read.get(1).getTotalAvaliableCopies());
+        }
+    }
+
+    @Test
+    public void assertOtherFilesAreRefused() throws IOException {
+        final Path path = this.directory.resolve("books.csv");
+        Files.writeString(path, "isbn,title,author");
+
+        assertThrows(IOException.class, () -> CatalogueSnapshot.read(path, true));
+    }
+
+    @Test
+    public void assertCutShortSnapshotFails() throws IOException {
+        final Path path = this.directory.resolve("catalogue.snapshot");
+        CatalogueSnapshot.write(path, List.of(new Book("testIsbn", "New Title", "testAuthor", 2023, 10)).iterator());
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        final Iterator<Book> read = CatalogueSnapshot.read(path, false);
+        assertThrows(IllegalStateException.class, read::next);
+    }
+}
@@ -0,0 +1,150 @@
+package com.codetest.service;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HoldQueuesTest {
+
+    private final HoldQueues holds = new HoldQueues();
+
+    @Test
+    public void assertHoldsAreServedInOrder() {
+        final Hold alice = holds.join("testIsbn", "alice");
+        final Hold bob = holds.join("testIsbn", "bob");
+
+        assertSame(alice, holds.join("testIsbn", "alice"));
+        assertSame(alice, holds.next("testIsbn"));
+        assertTrue(alice.claim());
+        holds.granted(alice);
+
+        assertSame(bob, holds.next("testIsbn"));
+        assertSame(alice, holds.find("testIsbn", "alice").orElseThrow());
+    }
+
+    @Test
+    public void assertRequeuedHoldKeepsItsPlace() {
+        final Hold alice = holds.join("testIsbn", "alice");
+        final Hold bob = holds.join("testIsbn", "bob");
+        assertTrue(alice.claim());
+        holds.granted(alice);
+
+        holds.requeue(alice);
+
+        assertSame(alice, holds.next("testIsbn"));
+        assertTrue(alice.claim());
+        holds.granted(alice);
+        assertSame(bob, holds.next("testIsbn"));
+    }
+
+    @Test
+    public void assertGrantedHoldIsKeptUntilCollected() {
+        final Hold alice = grant(holds.join("testIsbn", "alice"));
+
+        assertSame(alice, holds.find("testIsbn", "alice").orElseThrow());
+        // coming back for another copy gets a new place in line
+        assertNotSame(alice, holds.join("testIsbn", "alice"));
+
+        holds.collected(alice);
+        assertTrue(holds.find("testIsbn", "alice").orElseThrow().isWaiting());
+    }
+
+    @Test
+    public void assertUncollectedGrantedHoldExpires() {
+        final Hold alice = grant(holds.join("testIsbn", "alice"));
+        final Hold bob = holds.join("testIsbn", "bob");
+
+        ReflectionTestUtils.setField(holds, "grantedTtl", Duration.ofMinutes(1));
+        holds.expire();
+        assertSame(alice, holds.find("testIsbn", "alice").orElseThrow());
+
+        // a ttl below zero puts every grant past it
+        ReflectionTestUtils.setField(holds, "grantedTtl", Duration.ofMinutes(-1));
+        holds.expire();
+        assertTrue(holds.find("testIsbn", "alice").isEmpty());
+        assertSame(bob, holds.find("testIsbn", "bob").orElseThrow());
+    }
+
+    @Test
+    public void assertCancelledHoldsAreSkipped() {
+        holds.join("testIsbn", "alice");
+        final Hold bob = holds.join("testIsbn", "bob");
+
+        assertTrue(holds.cancel("testIsbn", "alice"));
+        assertFalse(holds.cancel("testIsbn", "alice"));
+
+        assertSame(bob, holds.next("testIsbn"));
+        assertTrue(holds.cancel("testIsbn", "bob"));
+        assertNull(holds.next("testIsbn"));
+        assertFalse(holds.hasWaiting("testIsbn"));
+    }
+
+    @Test
+    public void assertClaimedHoldCannotBeCancelled() {
+        final Hold alice = holds.join("testIsbn", "alice");
+
+        assertTrue(alice.claim());
+
+        assertFalse(alice.cancel());
+        assertFalse(alice.claim());
+    }
+
+    @Test
+    public void assertConcurrentJoinsAllGetInLine() throws Exception {
+        final int threads = 16;
+        final int membersPerThread = 500;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for(int t = 0; t < threads; t++) {
+            final int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for(int i = 0; i < membersPerThread; i++) {
+                    // every member joins twice, the second join keeps their place
+                    holds.join("testIsbn", "member" + thread + "-" + i);
+                    holds.join("testIsbn", "member" + thread + "-" + i);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        final List<Hold> served = new ArrayList<>();
+        Hold next;
+        while((next = holds.next("testIsbn")) != null) {
+            assertTrue(next.claim());
+            holds.granted(next);
+            served.add(next);
+        }
+        assertEquals(threads * membersPerThread, served.size());
+    }
+
+    private Hold grant(Hold hold) {
+        assertTrue(hold.claim());
+        holds.granted(hold);
+        hold.grant(null);
+        return hold;
+    }
+}
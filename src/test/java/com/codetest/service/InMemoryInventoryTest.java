@@ -0,0 +1,98 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryInventoryTest {
+
+    private final InMemoryInventory inventory = new InMemoryInventory();
+
+    @Test
+    public void assertConcurrentBorrowsNeverOversell() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        final AtomicInteger borrowed = new AtomicInteger();
+
+        runConcurrently(32, 100, () -> {
+            if(inventory.borrow(book)) {
+                borrowed.incrementAndGet();
+            }
+        });
+
+        assertEquals(10, borrowed.get());
+        assertFalse(inventory.borrow(book));
+        assertEquals(0, book.getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertConcurrentReturnsNeverExceedTotal() throws Exception {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 10);
+        for(int i = 0; i < 5; i++) {
+            assertTrue(inventory.borrow(book));
+        }
+        final AtomicInteger returned = new AtomicInteger();
+
+        runConcurrently(32, 100, () -> {
+            if(inventory.giveBack(book)) {
+                returned.incrementAndGet();
+            }
+        });
+
+        assertEquals(5, returned.get());
+        assertFalse(inventory.giveBack(book));
+        assertEquals(10, book.getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertForgottenBookStartsFromItsOwnCopies() {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 1);
+        assertTrue(inventory.borrow(book));
+
+        inventory.forget("testIsbn");
+
+        assertTrue(inventory.borrow(new Book("testIsbn", "New Title", "testAuthor", 2023, 1)));
+    }
+
+    @Test
+    public void assertRolledBackBorrowGivesItsCopyBack() {
+        final Book book = new Book("testIsbn", "New Title", "testAuthor", 2023, 1);
+        assertTrue(inventory.borrow(book));
+
+        inventory.rolledBack(book, -1);
+
+        assertTrue(inventory.borrow(book));
+        assertFalse(inventory.borrow(book));
+    }
+
+    private static void runConcurrently(int threads, int iterations, Runnable action) throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for(int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for(int i = 0; i < iterations; i++) {
+                    action.run();
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,120 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Borrows one popular book from many threads at once through the conditional update and the in memory inventory,
+ * and shows the old load, modify and save path handing one copy out twice. Throughput is logged, correctness is asserted.
+ */
+@SpringBootTest
+public class InventoryContentionTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InventoryContentionTest.class);
+
+    private static final String ISBN = "contentionIsbn";
+
+    private static final int COPIES = 200;
+
+    private static final int THREADS = 16;
+
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private DatabaseInventory databaseInventory;
+
+    @AfterEach
+    public void removeBook() {
+        bookRepository.findByIsbn(ISBN).ifPresent(bookRepository::delete);
+    }
+
+    @Test
+    public void assertConditionalUpdateNeverOversells() throws Exception {
+        bookRepository.save(new Book(ISBN, "Popular", "testAuthor", 2024, COPIES));
+
+        final int borrowed = contend("conditional update", isbn ->
+                databaseInventory.borrow(bookRepository.findByIsbn(isbn).orElseThrow()));
+
+        assertEquals(COPIES, borrowed);
+        assertEquals(0, bookRepository.findByIsbn(ISBN).orElseThrow().getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertInMemoryInventoryNeverOversells() throws Exception {
+        final Book book = bookRepository.save(new Book(ISBN, "Popular", "testAuthor", 2024, COPIES));
+        final InMemoryInventory inventory = new InMemoryInventory();
+
+        final int borrowed = contend("in memory", isbn -> inventory.borrow(book));
+
+        assertEquals(COPIES, borrowed);
+    }
+
+    @Test
+    public void assertLoadModifySaveOversells() {
+        bookRepository.save(new Book(ISBN, "Popular", "testAuthor", 2024, 1));
+
+        // two borrows of the last copy, each loading the book before the other saves it
+        final Book first = bookRepository.findByIsbn(ISBN).orElseThrow();
+        final Book second = bookRepository.findByIsbn(ISBN).orElseThrow();
+        assertEquals(1, first.getAvaliableCopies().get());
+        assertEquals(1, second.getAvaliableCopies().get());
+        bookRepository.save(first.reduceCopy());
+        bookRepository.save(second.reduceCopy());
+
+        // both were handed the one copy, and the second save overwrote the first without noticing
+        assertEquals(0, bookRepository.findByIsbn(ISBN).orElseThrow().getAvaliableCopies().get());
+        assertFalse(databaseInventory.borrow(bookRepository.findByIsbn(ISBN).orElseThrow()));
+    }
+
+    private int contend(String name, Predicate<String> borrow) throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger borrowed = new AtomicInteger();
+
+        for(int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for(int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if(borrow.test(ISBN)) {
+                        borrowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        final long started = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        final long elapsed = System.nanoTime() - started;
+
+        LOG.info("{}: {} attempts from {} threads in {} ms, {} ops/s", name, THREADS * ATTEMPTS_PER_THREAD, THREADS,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), (long) (THREADS * ATTEMPTS_PER_THREAD / (elapsed / 1e9)));
+        return borrowed.get();
+    }
+}
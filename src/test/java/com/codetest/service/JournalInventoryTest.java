@@ -0,0 +1,200 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.model.LoanEvent;
+import com.codetest.repository.BookRepository;
+import com.codetest.repository.LoanEventRepository;
+import com.codetest.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "inventory.mode=journal")
+public class JournalInventoryTest {
+
+    @Autowired
+    private JournalInventory inventory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanEventRepository journal;
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        ReflectionTestUtils.setField(inventory, "durability", JournalInventory.Durability.GROUP);
+        bookRepository.findByIsbn("journalIsbn").ifPresent(book -> {
+            inventory.forget(book.getIsbn());
+            bookRepository.delete(book);
+        });
+        journal.deleteAll();
+        loanRepository.deleteAll();
+        cacheManager.getCache("books").clear();
+    }
+
+    @Test
+    public void assertGroupCommitIsJournaledWhenBorrowReturns() {
+        final Book book = bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, 2));
+
+        assertTrue(inventory.borrow(book));
+        assertTrue(inventory.borrow(book));
+        assertFalse(inventory.borrow(book));
+        inventory.apply();
+
+        assertEquals(0, book.getAvaliableCopies().get());
+        assertEquals(0, bookRepository.findByIsbn("journalIsbn").orElseThrow().getAvaliableCopies().get());
+        assertEquals(0, journal.count());
+    }
+
+    @Test
+    public void assertEveryDurabilityReachesTheBookRow() {
+        final Book book = bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, 10));
+
+        for(JournalInventory.Durability durability : JournalInventory.Durability.values()) {
+            ReflectionTestUtils.setField(inventory, "durability", durability);
+            assertTrue(inventory.borrow(book));
+            assertTrue(inventory.borrow(book));
+            assertTrue(inventory.giveBack(book));
+        }
+        inventory.commit();
+        inventory.apply();
+
+        assertEquals(7, bookRepository.findByIsbn("journalIsbn").orElseThrow().getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertRolledBackBorrowsJournalNothing() {
+        final Book book = bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, 10));
+
+        for(JournalInventory.Durability durability : JournalInventory.Durability.values()) {
+            ReflectionTestUtils.setField(inventory, "durability", durability);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                assertTrue(inventory.borrow(book));
+                status.setRollbackOnly();
+            });
+        }
+        inventory.commit();
+
+        assertEquals(0, journal.count());
+    }
+
+    @Test
+    public void assertJournalIsReplayedOntoBooks() {
+        final Book book = bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, 10));
+        journal.append(List.of(new LoanEvent(book.getId(), -1), new LoanEvent(book.getId(), -1), new LoanEvent(book.getId(), 1)));
+
+        inventory.replay();
+
+        assertEquals(9, bookRepository.findByIsbn("journalIsbn").orElseThrow().getAvaliableCopies().get());
+        assertEquals(0, journal.count());
+    }
+
+    @Test
+    public void assertOverlappingAppliesAddEveryEventOnce() throws Exception {
+        final Book book = bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, 30_000));
+        final List<LoanEvent> events = new ArrayList<>();
+        for(int i = 0; i < 25_000; i++) {
+            events.add(new LoanEvent(book.getId(), -1));
+        }
+        journal.append(events);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> replaying = executor.submit(inventory::replay);
+            final Future<?> applying = executor.submit(inventory::apply);
+            replaying.get(20, TimeUnit.SECONDS);
+            applying.get(20, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(5_000, bookRepository.findByIsbn("journalIsbn").orElseThrow().getAvaliableCopies().get());
+        assertEquals(0, journal.count());
+    }
+
+    @Test
+    public void assertGroupCommitCallerGivesUpWhileTheJournalIsDown() {
+        final Book book = bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, 10));
+        final Object commits = ReflectionTestUtils.getField(inventory, "commits");
+        ReflectionTestUtils.setField(inventory, "commits", new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:journalDown;IFEXISTS=TRUE")));
+        ReflectionTestUtils.setField(inventory, "commitTimeout", Duration.ofMillis(50));
+        try {
+            assertThrows(TransientDataAccessResourceException.class, () -> inventory.borrow(book));
+        } finally {
+            ReflectionTestUtils.setField(inventory, "commits", commits);
+            ReflectionTestUtils.setField(inventory, "commitTimeout", Duration.ofSeconds(5));
+        }
+
+        // the borrow stands, and its event is journaled once the journal is back
+        assertEquals(9, book.getAvaliableCopies().get());
+        inventory.commit();
+        inventory.apply();
+        assertEquals(9, bookRepository.findByIsbn("journalIsbn").orElseThrow().getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertGroupCommitKeepsUpWithMoreBorrowersThanConnections() throws Exception {
+        // twice the connections in the pool, each borrowing inside its own transaction
+        final int threads = 24;
+        final int borrows = 5;
+        bookRepository.save(new Book("journalIsbn", "New Title", "testAuthor", 2023, threads * borrows));
+        library.findBookByISBN("journalIsbn");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> borrowers = new ArrayList<>();
+            for(int i = 0; i < threads; i++) {
+                final String member = "member" + i;
+                borrowers.add(executor.submit(() -> {
+                    for(int j = 0; j < borrows; j++) {
+                        library.borrowBook("journalIsbn", member);
+                    }
+                }));
+            }
+            for(Future<?> borrower : borrowers) {
+                borrower.get(20, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        inventory.commit();
+        inventory.apply();
+
+        assertEquals(threads * borrows, loanRepository.count());
+        assertEquals(0, bookRepository.findByIsbn("journalIsbn").orElseThrow().getAvaliableCopies().get());
+    }
+}
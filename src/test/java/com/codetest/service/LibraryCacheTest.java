@@ -0,0 +1,131 @@
+package com.codetest.service;
+
+import com.codetest.model.Book;
+import com.codetest.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+public class LibraryCacheTest {
+
+    private static final int THREADS = 8;
+
+    private static final int BORROWS_PER_THREAD = 10;
+
+    @Autowired
+    private Library library;
+
+    @SpyBean
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void createBook() {
+        cacheManager.getCache("books").clear();
+        bookRepository.save(new Book("cachedIsbn", "New Title", "testAuthor", 2023, THREADS * BORROWS_PER_THREAD));
+        clearInvocations(bookRepository);
+    }
+
+    @AfterEach
+    public void removeBook() {
+        bookRepository.findByIsbn("cachedIsbn").ifPresent(bookRepository::delete);
+    }
+
+    @Test
+    public void assertBorrowLoadsBookOnlyOnce() {
+        library.borrowBook("cachedIsbn", "testMember");
+        library.borrowBook("cachedIsbn", "testMember");
+        library.returnBook("cachedIsbn", "testMember");
+        library.findBookByISBN("cachedIsbn");
+
+        verify(bookRepository, times(1)).findByIsbn("cachedIsbn");
+    }
+
+    @Test
+    public void assertConcurrentBorrowsOfCachedBookNeverLoadIt() throws Exception {
+        library.findBookByISBN("cachedIsbn");
+        clearInvocations(bookRepository);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        for(int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for(int i = 0; i < BORROWS_PER_THREAD; i++) {
+                    library.borrowBook("cachedIsbn", "testMember");
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        verify(bookRepository, never()).findByIsbn(anyString());
+        verify(bookRepository, times(THREADS * BORROWS_PER_THREAD)).borrowCopy("cachedIsbn");
+        assertEquals(0, library.findBookByISBN("cachedIsbn").getAvaliableCopies().get());
+        assertEquals(0, bookRepository.findByIsbn("cachedIsbn").get().getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertConcurrentMissesLoadBookOnce() throws Exception {
+        final Optional<Book> book = bookRepository.findByIsbn("cachedIsbn");
+        clearInvocations(bookRepository);
+        // slow enough for every thread to miss while the first load is still running
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return book;
+        }).when(bookRepository).findByIsbn("cachedIsbn");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        for(int t = 0; t < THREADS; t++) {
+            final boolean borrow = t % 2 == 0;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if(borrow) {
+                    library.borrowBook("cachedIsbn", "testMember");
+                } else {
+                    library.findBookByISBN("cachedIsbn");
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        verify(bookRepository, times(1)).findByIsbn("cachedIsbn");
+        assertEquals(THREADS * BORROWS_PER_THREAD - THREADS / 2, library.findBookByISBN("cachedIsbn").getAvaliableCopies().get());
+    }
+}
@@ -0,0 +1,110 @@
+package com.codetest.service;
+
+import com.codetest.cache.CacheInvalidation;
+import com.codetest.cache.InvalidationTransport;
+import com.codetest.model.Book;
+import com.codetest.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays the other node by hand over the loopback transport.
+ */
+@SpringBootTest(properties = "cache.invalidation.transport=loopback")
+public class LibraryCoherenceTest {
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private InvalidationTransport transport;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<CacheInvalidation> sent = new CopyOnWriteArrayList<>();
+
+    private Cache books;
+
+    @BeforeEach
+    public void createBook() {
+        this.books = cacheManager.getCache("books");
+        this.books.clear();
+        library.createBook(new Book("coherentIsbn", "New Title", "testAuthor", 2023, 10));
+        transport.subscribe(invalidation -> {
+            if("coherentIsbn".equals(invalidation.key())) {
+                this.sent.add(invalidation);
+            }
+        });
+    }
+
+    @Test
+    public void assertBooksCacheStatsAreStillPublished() {
+        final double hits = meterRegistry.get("cache.gets").tags("cache", "books", "result", "hit").functionCounter().count();
+
+        library.findBookByISBN("coherentIsbn");
+        library.findBookByISBN("coherentIsbn");
+
+        assertEquals(hits + 1, meterRegistry.get("cache.gets").tags("cache", "books", "result", "hit").functionCounter().count());
+    }
+
+    @AfterEach
+    public void removeBook() {
+        bookRepository.findByIsbn("coherentIsbn").ifPresent(bookRepository::delete);
+    }
+
+    @Test
+    public void assertLookupsDoNotInvalidate() {
+        library.findBookByISBN("coherentIsbn");
+        library.findBooksByISBN(List.of("coherentIsbn"));
+
+        assertNotNull(this.books.get("coherentIsbn"));
+        assertTrue(this.sent.isEmpty());
+    }
+
+    @Test
+    public void assertChangesAreSentAfterCommit() {
+        library.borrowBook("coherentIsbn", "testMember");
+        library.returnBooks(List.of("coherentIsbn"), "testMember");
+
+        assertEquals(2, this.sent.size());
+        assertEquals("books", this.sent.get(0).cache());
+        // the node's own copy stays cached
+        assertNotNull(this.books.get("coherentIsbn"));
+    }
+
+    @Test
+    public void assertOtherNodesChangeIsReloaded() {
+        final Book before = library.findBookByISBN("coherentIsbn");
+
+        // another node borrows a copy straight in the shared database and tells everyone
+        bookRepository.borrowCopy("coherentIsbn");
+        transport.publish(new CacheInvalidation("otherNode", "books", "coherentIsbn"));
+
+        assertNull(this.books.get("coherentIsbn"));
+        final Book after = library.findBookByISBN("coherentIsbn");
+        assertNotSame(before, after);
+        assertEquals(9, after.getAvaliableCopies().get());
+    }
+}
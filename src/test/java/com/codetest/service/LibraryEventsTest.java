@@ -0,0 +1,49 @@
+package com.codetest.service;
+
+import com.codetest.exception.OutOfStockException;
+import com.codetest.model.Book;
+import com.codetest.model.BookEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class LibraryEventsTest {
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private BookEvents events;
+
+    @Test
+    public void assertCommittedChangesAreStreamed() {
+        final CompletableFuture<List<BookEvent>> stream = events.stream(null)
+                .filter(event -> "eventIsbn".equals(event.book().isbn()))
+                .take(4)
+                .collectList()
+                .toFuture();
+
+        library.createBook(new Book("eventIsbn", "New Title", "testAuthor", 2023, 1));
+        library.borrowBook("eventIsbn", "testMember");
+        // rolled back, so never streamed
+        assertThrows(OutOfStockException.class, () -> library.borrowBook("eventIsbn", "testMember"));
+        library.returnBooks(List.of("eventIsbn"), "testMember");
+        library.removeBook("eventIsbn");
+
+        final List<BookEvent> received = stream.orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(List.of(BookEvent.Type.CREATED, BookEvent.Type.BORROWED, BookEvent.Type.RETURNED, BookEvent.Type.REMOVED),
+                received.stream().map(BookEvent::type).toList());
+        assertEquals(List.of(1, 0, 1, 1), received.stream().map(event -> event.book().avaliableCopies()).toList());
+        for(int i = 1; i < received.size(); i++) {
+            assertEquals(received.get(i - 1).sequence() + 1, received.get(i).sequence());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.codetest.service;
+
+import com.codetest.exception.BookNotFoundException;
+import com.codetest.exception.OutOfStockException;
+import com.codetest.model.Book;
+import com.codetest.model.Loan;
+import com.codetest.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Not transactional, so that holds are granted on commit as they are outside of tests.
+ */
+@SpringBootTest
+public class LibraryHoldTest {
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void createBook() {
+        cacheManager.getCache("books").clear();
+        library.createBook(new Book("holdIsbn", "New Title", "testAuthor", 2023, 1));
+    }
+
+    @AfterEach
+    public void removeBook() {
+        try {
+            library.removeBook("holdIsbn");
+        } catch (BookNotFoundException ex) {
+            // removed by the test
+        }
+        loanRepository.deleteAll();
+    }
+
+    @Test
+    public void assertReturnedCopyGoesToTheFirstHold() throws Exception {
+        library.borrowBook("holdIsbn", "alice");
+        final Hold bob = library.placeHold("holdIsbn", "bob");
+        final Hold carol = library.placeHold("holdIsbn", "carol");
+        assertFalse(bob.granted().isDone());
+
+        // a member without a hold cannot jump the line
+        assertThrows(OutOfStockException.class, () -> library.borrowBook("holdIsbn", "dave"));
+
+        library.returnBook("holdIsbn", "alice");
+
+        assertEquals("holdIsbn", bob.granted().get(5, TimeUnit.SECONDS).getIsbn());
+        assertEquals(0, library.findBookByISBN("holdIsbn").getAvaliableCopies().get());
+        assertEquals(List.of("bob"), library.findOpenLoansOfBook("holdIsbn", 10).stream().map(Loan::getMember).toList());
+        assertFalse(carol.granted().isDone());
+        assertTrue(library.findHold("holdIsbn", "carol").isPresent());
+    }
+
+    @Test
+    public void assertHoldGrantedBetweenPollsIsFoundUntilCollected() throws Exception {
+        library.borrowBook("holdIsbn", "alice");
+        // bob's poll timed out, the copy comes back before he asks again
+        library.placeHold("holdIsbn", "bob");
+        library.returnBook("holdIsbn", "alice");
+
+        final Hold bob = library.findHold("holdIsbn", "bob").orElseThrow();
+        assertEquals("holdIsbn", bob.granted().get(5, TimeUnit.SECONDS).getIsbn());
+
+        library.collectHold(bob);
+        assertTrue(library.findHold("holdIsbn", "bob").isEmpty());
+    }
+
+    @Test
+    public void assertRolledBackGrantKeepsItsPlaceAndCopy() throws Exception {
+        library.borrowBook("holdIsbn", "alice");
+        final Hold bob = library.placeHold("holdIsbn", "bob");
+        final Hold carol = library.placeHold("holdIsbn", "carol");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            library.returnBook("holdIsbn", "alice");
+            status.setRollbackOnly();
+        });
+
+        assertFalse(bob.granted().isDone());
+        assertEquals(0, library.findBookByISBN("holdIsbn").getAvaliableCopies().get());
+
+        library.returnBook("holdIsbn", "alice");
+
+        assertEquals("holdIsbn", bob.granted().get(5, TimeUnit.SECONDS).getIsbn());
+        assertFalse(carol.granted().isDone());
+    }
+
+    @Test
+    public void assertCancelledHoldIsPassedOver() throws Exception {
+        library.borrowBook("holdIsbn", "alice");
+        library.placeHold("holdIsbn", "bob");
+        final Hold carol = library.placeHold("holdIsbn", "carol");
+
+        assertTrue(library.cancelHold("holdIsbn", "bob"));
+        library.returnBook("holdIsbn", "alice");
+
+        assertEquals("holdIsbn", carol.granted().get(5, TimeUnit.SECONDS).getIsbn());
+        assertTrue(library.findOpenLoans("bob", 10).isEmpty());
+    }
+
+    @Test
+    public void assertHoldOnAFreeCopyIsGrantedRightAway() {
+        final Hold alice = library.placeHold("holdIsbn", "alice");
+
+        assertTrue(alice.granted().isDone());
+        assertEquals(1, library.findOpenLoans("alice", 10).size());
+    }
+
+    @Test
+    public void assertRemovedBookFailsItsHolds() {
+        library.borrowBook("holdIsbn", "alice");
+        final Hold bob = library.placeHold("holdIsbn", "bob");
+
+        library.removeBook("holdIsbn");
+
+        final ExecutionException thrown = assertThrows(ExecutionException.class, () -> bob.granted().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BookNotFoundException.class, thrown.getCause());
+    }
+}
@@ -0,0 +1,146 @@
+package com.codetest.service;
+
+import com.codetest.exception.OutOfStockException;
+import com.codetest.model.Book;
+import com.codetest.model.Loan;
+import com.codetest.repository.BookRepository;
+import com.codetest.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Not transactional, so that a failed borrow really rolls its loans back.
+ */
+@SpringBootTest
+public class LibraryLoanTest {
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void createBooks() {
+        cacheManager.getCache("books").clear();
+        library.createBook(new Book("loanIsbn", "New Title", "testAuthor", 2023, 2));
+        library.createBook(new Book("loanIsbn1", "New New Title", "testAuthor", 2023, 1));
+    }
+
+    @AfterEach
+    public void removeBooks() {
+        library.removeBook("loanIsbn");
+        library.removeBook("loanIsbn1");
+        loanRepository.deleteAll();
+    }
+
+    @Test
+    public void assertBorrowOpensAndReturnClosesTheMembersLoan() {
+        library.borrowBook("loanIsbn", "alice");
+        library.borrowBook("loanIsbn", "bob");
+
+        final List<Loan> open = library.findOpenLoans("alice", 10);
+        assertEquals(1, open.size());
+        assertEquals("loanIsbn", open.get(0).getIsbn());
+        assertEquals(Duration.ofDays(14), Duration.between(open.get(0).getBorrowedAt(), open.get(0).getDueAt()));
+
+        library.returnBook("loanIsbn", "alice");
+
+        assertTrue(library.findOpenLoans("alice", 10).isEmpty());
+        assertEquals(List.of("bob"), library.findOpenLoansOfBook("loanIsbn", 10).stream().map(Loan::getMember).toList());
+        final List<Loan> history = library.findLoans("alice", null, 10);
+        assertEquals(1, history.size());
+        assertNotNull(history.get(0).getReturnedAt());
+    }
+
+    @Test
+    public void assertRejectedBorrowLeavesNoLoan() {
+        library.borrowBook("loanIsbn1", "alice");
+
+        assertThrows(OutOfStockException.class, () -> library.borrowBook("loanIsbn1", "bob"));
+        assertThrows(OutOfStockException.class, () -> library.borrowBooks(List.of("loanIsbn", "loanIsbn1"), "carol"));
+
+        assertTrue(library.findLoans("bob", null, 10).isEmpty());
+        assertTrue(library.findLoans("carol", null, 10).isEmpty());
+        assertEquals(2, bookRepository.findByIsbn("loanIsbn").orElseThrow().getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertRolledBackBorrowsLeaveTheCachedBookInStepWithItsRow() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            library.borrowBook("loanIsbn", "alice");
+            library.borrowBooks(List.of("loanIsbn", "loanIsbn1"), "bob");
+            assertEquals(0, library.findBookByISBN("loanIsbn").getAvaliableCopies().get());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(2, library.findBookByISBN("loanIsbn").getAvaliableCopies().get());
+        assertEquals(1, library.findBookByISBN("loanIsbn1").getAvaliableCopies().get());
+        assertEquals(2, bookRepository.findByIsbn("loanIsbn").orElseThrow().getAvaliableCopies().get());
+        assertTrue(library.findLoans("alice", null, 10).isEmpty());
+    }
+
+    @Test
+    public void assertOverdueLoansComeLongestOverdueFirst() {
+        final Instant now = Instant.now();
+        loanRepository.save(new Loan("alice", "loanIsbn", now.minus(Duration.ofDays(20)), now.minus(Duration.ofDays(6))));
+        loanRepository.save(new Loan("bob", "loanIsbn", now.minus(Duration.ofDays(30)), now.minus(Duration.ofDays(16))));
+        loanRepository.save(new Loan("carol", "loanIsbn", now, now.plus(Duration.ofDays(14))));
+        loanRepository.save(new Loan("dave", "loanIsbn", now.minus(Duration.ofDays(40)), now.minus(Duration.ofDays(26))).markReturned(now));
+
+        assertEquals(List.of("bob", "alice"), library.findOverdueLoans(10).stream().map(Loan::getMember).toList());
+    }
+
+    @Test
+    public void assertReturnWithoutLoanStillPutsACopyBack() {
+        library.borrowBook("loanIsbn", "alice");
+
+        final Book book = library.returnBook("loanIsbn", "bob");
+
+        assertEquals(2, book.getAvaliableCopies().get());
+        assertNull(library.findLoans("alice", null, 10).get(0).getReturnedAt());
+    }
+
+    @Test
+    public void assertLoanQueriesUseTheirIndexes() {
+        assertPlanUses("idx_loan_member_returned", "select * from loan where member = 'alice' and returned_at is null order by id limit 10");
+        assertPlanUses("idx_loan_member_id", "select * from loan where member = 'alice' and id > 0 order by id limit 10");
+        assertPlanUses("idx_loan_isbn_returned", "select * from loan where isbn = 'loanIsbn' and returned_at is null order by id limit 10");
+        assertPlanUses("idx_loan_returned_due", "select * from loan where returned_at is null and due_at < current_timestamp order by returned_at, due_at, id limit 10");
+        assertPlanUses("index sorted", "select * from loan where returned_at is null and due_at < current_timestamp order by returned_at, due_at, id limit 10");
+    }
+
+    private void assertPlanUses(String index, String query) {
+        final String plan = jdbcTemplate.queryForObject("explain " + query, String.class);
+        assertTrue(plan.toLowerCase().contains(index), plan);
+    }
+}
@@ -0,0 +1,141 @@
+package com.codetest.service;
+
+import com.codetest.config.ReadYourWrites;
+import com.codetest.model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The replica is a second in memory database, brought up to date by hand with a script of the primary,
+ * so every test knows exactly how far behind it is.
+ */
+@SpringBootTest(properties = {"datasource.replica.enabled=true", "datasource.replica.url=jdbc:h2:mem:libraryReplicaTest"})
+public class LibraryReplicaTest {
+
+    @Autowired
+    private Library library;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    public void createBook() {
+        library.createBook(new Book("replicaIsbn", "Replicated Title", "replicaAuthor", 2023, 10));
+        replicate();
+    }
+
+    @AfterEach
+    public void removeBooks() {
+        library.removeBook("replicaIsbn");
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(primary);
+        jdbcTemplate.update("delete from book where author = 'replicaAuthor'");
+        jdbcTemplate.update("delete from loan where isbn = 'replicaIsbn'");
+    }
+
+    @Test
+    public void assertReadsGoToReplica() {
+        library.createBook(new Book("replicaIsbn2", "Written After", "replicaAuthor", 2023, 1));
+
+        assertEquals(1, library.findBooksByAuthor("replicaAuthor").size());
+        replicate();
+        assertEquals(2, library.findBooksByAuthor("replicaAuthor").size());
+    }
+
+    @Test
+    public void assertWritesGoToPrimary() {
+        library.borrowBook("replicaIsbn", "testMember");
+
+        assertEquals(9, copies(primary));
+        assertEquals(10, copies(replica));
+        assertEquals(0, library.findOpenLoans("testMember", 10).size());
+        replicate();
+        assertEquals(1, library.findOpenLoans("testMember", 10).size());
+    }
+
+    @Test
+    public void assertBorrowAfterALaggingReadKeepsTheCachedCountRight() {
+        library.borrowBook("replicaIsbn", "testMember");
+        cacheManager.getCache("books").evict("replicaIsbn");
+
+        // the lookup is served by the replica, which has not seen the borrow yet
+        assertEquals(10, library.findBookByISBN("replicaIsbn").getAvaliableCopies().get());
+        library.borrowBook("replicaIsbn", "testMember");
+        assertEquals(8, copies(primary));
+        assertEquals(8, cacheManager.getCache("books").get("replicaIsbn", Book.class).getAvaliableCopies().get());
+
+        cacheManager.getCache("books").evict("replicaIsbn");
+        assertEquals(10, library.findBooksByISBN(List.of("replicaIsbn")).get(0).getAvaliableCopies().get());
+        library.borrowBooks(List.of("replicaIsbn"), "testMember");
+        assertEquals(7, copies(primary));
+        assertEquals(7, cacheManager.getCache("books").get("replicaIsbn", Book.class).getAvaliableCopies().get());
+    }
+
+    @Test
+    public void assertReadsFollowOwnWrites() throws Exception {
+        library.borrowBook("replicaIsbn", "testMember");
+        readYourWrites.afterCompletion(request("POST", "testMember"), new MockHttpServletResponse(), null, null);
+
+        assertEquals(1, openLoans("testMember"));
+        assertEquals(0, openLoans("otherMember"));
+    }
+
+    /**
+     * @return the open loans of testMember as read in a request of the given member
+     */
+    private int openLoans(String member) throws Exception {
+        final MockHttpServletRequest request = request("GET", member);
+        readYourWrites.preHandle(request, new MockHttpServletResponse(), null);
+        try {
+            return library.findOpenLoans("testMember", 10).size();
+        } finally {
+            readYourWrites.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String member) {
+        final MockHttpServletRequest request = new MockHttpServletRequest(method, "/books");
+        request.setUserPrincipal(() -> member);
+        return request;
+    }
+
+    private static int copies(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select avaliable_copies from book where isbn = 'replicaIsbn'", Integer.class);
+    }
+
+    private void replicate() {
+        final String script = this.directory.resolve("primary.sql").toString().replace('\\', '/');
+        new JdbcTemplate(primary).execute("script to '" + script + "'");
+        final JdbcTemplate replica = new JdbcTemplate(this.replica);
+        replica.execute("drop all objects");
+        replica.execute("runscript from '" + script + "'");
+    }
+}
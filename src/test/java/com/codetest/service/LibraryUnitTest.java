@@ -1,14 +1,19 @@
 package com.codetest.service;
 
 import com.codetest.exception.BookNotFoundException;
+import com.codetest.exception.OutOfStockException;
+import com.codetest.exception.OverReturnException;
 import com.codetest.model.Book;
 import com.codetest.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -26,6 +31,15 @@ public class LibraryUnitTest {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void clearCache() {
+        // each test rolls its books back, so nothing cached by an earlier test may survive
+        cacheManager.getCache("books").clear();
+    }
+
     @Test
     public void assertBookIsCreated() {
         assertEquals(0, bookRepository.findByAuthor("testAuthor").size());
@@ -79,7 +93,7 @@ public class LibraryUnitTest {
     public void assertBorrowBookReducesCopies() {
         library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
 
-        final Book book = library.borrowBook("testIsbn");
+        final Book book = library.borrowBook("testIsbn", "testMember");
         assertEquals(9, book.getAvaliableCopies().intValue());
         assertEquals(10, book.getTotalAvaliableCopies());
     }
@@ -87,24 +101,36 @@ public class LibraryUnitTest {
     @Test
     public void assertBorrowZeroCopiesReturnError() {
         library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 1));
-        library.borrowBook("testIsbn");
+        library.borrowBook("testIsbn", "testMember");
 
-        BookNotFoundException thrown = assertThrows(
-                BookNotFoundException.class,
-                () ->   library.borrowBook("testIsbn"),
+        OutOfStockException thrown = assertThrows(
+                OutOfStockException.class,
+                () ->   library.borrowBook("testIsbn", "testMember"),
                 "Expected borrowBook() to throw, but it didn't"
         );
 
         assertTrue(thrown.getMessage().contains("No copies exist to borrow for isbn : testIsbn"));
     }
 
+    @Test
+    public void assertBorrowAndReturnBumpVersion() {
+        library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        final long created = bookRepository.findByIsbn("testIsbn").get().getVersion();
+
+        final long borrowed = library.borrowBook("testIsbn", "testMember").getVersion();
+        final long returned = library.returnBook("testIsbn", "testMember").getVersion();
+
+        assertTrue(created < borrowed && borrowed < returned);
+        assertEquals(created + 2, bookRepository.findByIsbn("testIsbn").get().getVersion());
+    }
+
     @Test
     public void assertReturnBookReducesCopies() {
         library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
-        library.borrowBook("testIsbn");
-        library.borrowBook("testIsbn");
+        library.borrowBook("testIsbn", "testMember");
+        library.borrowBook("testIsbn", "testMember");
 
-        final Book book = library.returnBook("testIsbn");
+        final Book book = library.returnBook("testIsbn", "testMember");
         assertEquals(9, book.getAvaliableCopies().intValue());
         assertEquals(10, book.getTotalAvaliableCopies());
     }
@@ -113,9 +139,9 @@ public class LibraryUnitTest {
     public void assertReturnOverMaximumCopiesReturnError() {
         library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
 
-        BookNotFoundException thrown = assertThrows(
-                BookNotFoundException.class,
-                () ->   library.returnBook("testIsbn"),
+        OverReturnException thrown = assertThrows(
+                OverReturnException.class,
+                () ->   library.returnBook("testIsbn", "testMember"),
                 "Expected returnBook() to throw, but it didn't"
         );
 
@@ -169,4 +195,96 @@ public class LibraryUnitTest {
         assertTrue(thrown.getMessage().contains("Books were not found for author : testAuthor"));
     }
 
+    @Test
+    public void assertFindByAuthorPagesFollowCursor() {
+        final Book first = library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        library.createBook(new Book("testIsbn1", "New New Title", "testNewAuthor", 2023, 10));
+        final Book second = library.createBook(new Book("testIsbn2", "New Another Title", "testAuthor", 2024, 10));
+        final Book third = library.createBook(new Book("testIsbn3", "Third Title", "testAuthor", 2024, 10));
+
+        final List<Book> firstPage = library.findBooksByAuthor("testAuthor", null, 2);
+        assertEquals(List.of(first, second), firstPage);
+
+        final List<Book> secondPage = library.findBooksByAuthor("testAuthor", firstPage.get(1).getId(), 2);
+        assertEquals(List.of(third), secondPage);
+
+        assertTrue(library.findBooksByAuthor("testAuthor", third.getId(), 2).isEmpty());
+    }
+
+    @Test
+    public void assertFirstPageByNonExistentAuthorReturnError() {
+        BookNotFoundException thrown = assertThrows(
+                BookNotFoundException.class,
+                () ->  library.findBooksByAuthor("testAuthor", null, 10),
+                "Expected findBooksByAuthor() to throw, but it didn't"
+        );
+
+        assertTrue(thrown.getMessage().contains("Books were not found for author : testAuthor"));
+    }
+
+    @Test
+    public void assertFindByIsbnsReturnsKnownBooksInOrder() {
+        library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        library.createBook(new Book("testIsbn1", "New New Title", "testAuthor", 2023, 10));
+        library.findBookByISBN("testIsbn1");
+
+        final List<Book> books = library.findBooksByISBN(List.of("testIsbn1", "unknownIsbn", "testIsbn"));
+
+        assertEquals(List.of("testIsbn1", "testIsbn"), books.stream().map(Book::getIsbn).toList());
+    }
+
+    @Test
+    public void assertBorrowBooksTakesOneCopyOfEach() {
+        library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        library.createBook(new Book("testIsbn1", "New New Title", "testAuthor", 2023, 1));
+
+        final List<Book> books = library.borrowBooks(List.of("testIsbn", "testIsbn1"), "testMember");
+
+        assertEquals(9, books.get(0).getAvaliableCopies().intValue());
+        assertEquals(0, books.get(1).getAvaliableCopies().intValue());
+        assertEquals(0, bookRepository.findByIsbn("testIsbn1").get().getAvaliableCopies().intValue());
+    }
+
+    @Test
+    public void assertBorrowBooksTakesNothingWhenOneIsOutOfCopies() {
+        library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        library.createBook(new Book("testIsbn1", "New New Title", "testAuthor", 2023, 1));
+
+        OutOfStockException thrown = assertThrows(
+                OutOfStockException.class,
+                () ->  library.borrowBooks(List.of("testIsbn", "testIsbn1", "testIsbn1"), "testMember"),
+                "Expected borrowBooks() to throw, but it didn't"
+        );
+
+        assertTrue(thrown.getMessage().contains("No copies exist to borrow for isbn : testIsbn1"));
+        assertEquals(10, library.findBookByISBN("testIsbn").getAvaliableCopies().intValue());
+        assertEquals(1, library.findBookByISBN("testIsbn1").getAvaliableCopies().intValue());
+    }
+
+    @Test
+    public void assertReturnBooksPutsNothingBackWhenOneIsUnknown() {
+        library.createBook(new Book("testIsbn", "New Title", "testAuthor", 2023, 10));
+        library.borrowBook("testIsbn", "testMember");
+
+        BookNotFoundException thrown = assertThrows(
+                BookNotFoundException.class,
+                () ->  library.returnBooks(List.of("testIsbn", "unknownIsbn"), "testMember"),
+                "Expected returnBooks() to throw, but it didn't"
+        );
+
+        assertTrue(thrown.getMessage().contains("Book was not found using isbn : unknownIsbn"));
+        assertEquals(9, library.findBookByISBN("testIsbn").getAvaliableCopies().intValue());
+    }
+
+    @Test
+    public void assertCreatedBooksAreSearchableUntilRemoved() {
+        library.createBook(new Book("searchIsbn", "Searchable Title", "testAuthor", 2023, 10));
+
+        assertEquals(List.of("searchIsbn"), library.searchBooks("searchab", 10).stream().map(Book::getIsbn).toList());
+
+        library.removeBook("searchIsbn");
+
+        assertTrue(library.searchBooks("searchab", 10).isEmpty());
+    }
+
 }